@@ -0,0 +1,100 @@
+#!/usr/bin/env bash
+# Startup time and memory of the plain jar against the AOT + CDS build and, if one was built, the
+# native image. Build first with:
+#   ./mvnw -Pfast-startup -DskipTests package        (target/*.jar and target/app/app.jsa)
+#   ./mvnw -Pnative -DskipTests native:compile       (optional, needs GraalVM; target/transaction-service)
+#
+# Each variant is started RUNS times with schema init off, so no database is needed. "ready" is the
+# time from launch until the server first answers HTTP; "started" is what Spring Boot logs itself;
+# RSS is sampled once the server answers. Medians are reported. A start that fails or times out
+# stops the script with a non-zero exit instead of being counted.
+#
+#   RUNS=10 PORT=14002 JAVA_OPTS="-Xmx256m" scripts/startup-benchmark.sh
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+RUNS=${RUNS:-5}
+PORT=${PORT:-14002}
+JAVA_OPTS=${JAVA_OPTS:-}
+APP_ARGS=${APP_ARGS:-"--server.port=${PORT} --spring.sql.init.mode=never"}
+TIMEOUT_S=${TIMEOUT_S:-60}
+
+JAR=$(ls target/transaction-service-*.jar 2>/dev/null | head -1 || true)
+EXTRACTED_JAR=$(ls target/app/transaction-service-*.jar 2>/dev/null | head -1 || true)
+NATIVE=target/transaction-service
+LOG=target/startup-benchmark.log
+
+if [[ -z "$JAR" ]]; then
+  echo "No jar in target/, run ./mvnw -Pfast-startup -DskipTests package first" >&2
+  exit 1
+fi
+
+now_ms() {
+  echo $(( $(date +%s%N) / 1000000 ))
+}
+
+median() {
+  sort -n | awk '{ v[NR] = $1 } END { if (NR == 0) print "-"; else if (NR % 2) print v[(NR + 1) / 2]; else print (v[NR / 2] + v[NR / 2 + 1]) / 2 }'
+}
+
+# runs one start, prints "<ready ms> <started s> <rss MB>"; returns non-zero if the server never answers.
+# It runs inside $(...), so it must return rather than exit: an exit would only leave the subshell
+measure() {
+  local start pid ready rss started
+  start=$(now_ms)
+  # shellcheck disable=SC2086
+  "$@" $APP_ARGS > "$LOG" 2>&1 &
+  pid=$!
+  until [[ "$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:${PORT}/actuator/health" || true)" != "000" ]]; do
+    if ! kill -0 "$pid" 2>/dev/null; then
+      echo "Process exited before serving, see $LOG" >&2
+      return 1
+    fi
+    if (( $(now_ms) - start > TIMEOUT_S * 1000 )); then
+      kill "$pid"
+      wait "$pid" 2>/dev/null || true
+      echo "No HTTP response within ${TIMEOUT_S}s, see $LOG" >&2
+      return 1
+    fi
+    sleep 0.02
+  done
+  ready=$(( $(now_ms) - start ))
+  rss=$(( $(ps -o rss= -p "$pid") / 1024 ))
+  started=$(sed -n 's/.*Started TransactionServiceApplication in \([0-9.]*\) seconds.*/\1/p' "$LOG" | head -1)
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+  echo "$ready ${started:-0} $rss"
+}
+
+report() {
+  local name=$1
+  shift
+  local results=() result
+  for ((i = 0; i < RUNS; i++)); do
+    if ! result=$(measure "$@"); then
+      echo "$name: run $((i + 1)) of $RUNS failed, no result reported" >&2
+      exit 1
+    fi
+    results+=("$result")
+  done
+  printf '%-10s %10s %12s %10s\n' "$name" \
+    "$(printf '%s\n' "${results[@]}" | cut -d' ' -f1 | median)" \
+    "$(printf '%s\n' "${results[@]}" | cut -d' ' -f2 | median)" \
+    "$(printf '%s\n' "${results[@]}" | cut -d' ' -f3 | median)"
+}
+
+printf '%-10s %10s %12s %10s\n' variant "ready ms" "started s" "RSS MB"
+# shellcheck disable=SC2086
+report jar java $JAVA_OPTS -jar "$JAR"
+if [[ -n "$EXTRACTED_JAR" && -f target/app/app.jsa ]]; then
+  # shellcheck disable=SC2086
+  report aot+cds java $JAVA_OPTS -XX:SharedArchiveFile=target/app/app.jsa -Dspring.aot.enabled=true -jar "$EXTRACTED_JAR"
+else
+  echo "aot+cds    skipped: no target/app/app.jsa (build with -Pfast-startup)"
+fi
+if [[ -x "$NATIVE" ]]; then
+  report native "$NATIVE"
+else
+  echo "native     skipped: no $NATIVE (build with -Pnative native:compile)"
+fi
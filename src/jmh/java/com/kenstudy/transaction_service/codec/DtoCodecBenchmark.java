@@ -0,0 +1,139 @@
+package com.kenstudy.transaction_service.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.kenstudy.customer.CustomerResponseDTO;
+import com.kenstudy.payment.PaymentRequestDTO;
+import com.kenstudy.transaction.TransactionResponseDTO;
+import com.kenstudy.transaction.TransferRequestDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson cost of the DTOs exchanged on the fund-transfer path, JSON against CBOR. Payload sizes are
+ * printed once per trial since they do not vary between invocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DtoCodecBenchmark {
+    @Param({"json", "cbor"})
+    public String format;
+
+    private ObjectWriter requestWriter;
+    private ObjectReader requestReader;
+    private ObjectWriter responseWriter;
+    private ObjectReader responseReader;
+    private ObjectWriter customerWriter;
+    private ObjectReader customerReader;
+    private ObjectWriter paymentWriter;
+    private ObjectReader paymentReader;
+    private TransferRequestDTO request;
+    private TransactionResponseDTO response;
+    private CustomerResponseDTO customer;
+    private PaymentRequestDTO payment;
+    private byte[] requestBytes;
+    private byte[] responseBytes;
+    private byte[] customerBytes;
+    private byte[] paymentBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = ("cbor".equals(format) ? new ObjectMapper(new CBORFactory()) : new ObjectMapper())
+                .registerModule(new JavaTimeModule());
+        requestWriter = objectMapper.writerFor(TransferRequestDTO.class);
+        requestReader = objectMapper.readerFor(TransferRequestDTO.class);
+        responseWriter = objectMapper.writerFor(TransactionResponseDTO.class);
+        responseReader = objectMapper.readerFor(TransactionResponseDTO.class);
+        customerWriter = objectMapper.writerFor(CustomerResponseDTO.class);
+        customerReader = objectMapper.readerFor(CustomerResponseDTO.class);
+        paymentWriter = objectMapper.writerFor(PaymentRequestDTO.class);
+        paymentReader = objectMapper.readerFor(PaymentRequestDTO.class);
+
+        request = new TransferRequestDTO();
+        request.setAccountId(1001);
+        request.setCustomerId(501);
+        request.setRecipientId(2002);
+        request.setAmount(125.50);
+        request.setDescription("rent for June");
+
+        response = new TransactionResponseDTO();
+        response.setTransactionId(987654);
+        response.setAccountId(1001);
+        response.setCustomerId(501);
+        response.setRecipientId(2002);
+        response.setAmount(125.50);
+        response.setTransactionType("TRANSFER");
+        response.setStatus("TRANSACTION_CREATED");
+        response.setCreatedDated(LocalDate.of(2025, 6, 1));
+        response.setDescription("rent for June");
+
+        customer = new CustomerResponseDTO();
+        customer.setId(501);
+        customer.setAccountId(1001);
+
+        payment = new PaymentRequestDTO();
+        payment.setTransactionId(987654);
+        payment.setTransactStatus("TRANSACTION_CREATED");
+        payment.setAmount(125.50);
+        payment.setCustomerId(501);
+        payment.setAccountId(1001);
+        payment.setRecipientId(2002);
+
+        requestBytes = requestWriter.writeValueAsBytes(request);
+        responseBytes = responseWriter.writeValueAsBytes(response);
+        customerBytes = customerWriter.writeValueAsBytes(customer);
+        paymentBytes = paymentWriter.writeValueAsBytes(payment);
+        System.out.printf("%n[%s] payload bytes: TransferRequestDTO=%d TransactionResponseDTO=%d CustomerResponseDTO=%d PaymentRequestDTO=%d%n",
+                format, requestBytes.length, responseBytes.length, customerBytes.length, paymentBytes.length);
+    }
+
+    @Benchmark
+    public byte[] serializeTransferRequest() throws IOException {
+        return requestWriter.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public TransferRequestDTO deserializeTransferRequest() throws IOException {
+        return requestReader.readValue(requestBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeTransactionResponse() throws IOException {
+        return responseWriter.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public TransactionResponseDTO deserializeTransactionResponse() throws IOException {
+        return responseReader.readValue(responseBytes);
+    }
+
+    @Benchmark
+    public CustomerResponseDTO deserializeCustomerResponse() throws IOException {
+        return customerReader.readValue(customerBytes);
+    }
+
+    @Benchmark
+    public byte[] serializePaymentRequest() throws IOException {
+        return paymentWriter.writeValueAsBytes(payment);
+    }
+}
@@ -0,0 +1,49 @@
+package com.kenstudy.transaction_service.service.customImpl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Clock;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reserve/release round trips on a single hot account versus spread over many accounts. singleHotAccount
+ * is the worst case for the per-account monitor: eight threads on one window, which AccountSequencer
+ * normally prevents. Run with {@code ./mvnw -Pjmh -DskipTests verify -Djmh.args="AccountVelocityLimiterBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class AccountVelocityLimiterBenchmark {
+    private AccountVelocityLimiter limiter;
+
+    @Setup
+    public void setUp() {
+        limiter = new AccountVelocityLimiter(null, Clock.systemUTC(), true,
+                1e12, Integer.MAX_VALUE, 1e12, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public void singleHotAccount() {
+        limiter.release(limiter.reserve(42, 10.0));
+    }
+
+    @Benchmark
+    public void spreadAccounts() {
+        limiter.release(limiter.reserve(ThreadLocalRandom.current().nextInt(10_000), 10.0));
+    }
+}
@@ -0,0 +1,113 @@
+package com.kenstudy.transaction_service.service.customImpl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.kenstudy.customer.CustomerResponseDTO;
+import com.kenstudy.payment.PaymentRequestDTO;
+import com.kenstudy.transaction.TransactionResponseDTO;
+import com.kenstudy.transaction.TransferRequestDTO;
+import com.kenstudy.transaction_service.config.datasource.ReplicaDataSourceProperties;
+import com.kenstudy.transaction_service.model.Transaction;
+import com.kenstudy.transaction_service.stub.InMemoryOutboxRepository;
+import com.kenstudy.transaction_service.stub.InMemoryTransactionRepository;
+import com.kenstudy.transaction_service.stub.PassThroughTransactionalOperator;
+import com.kenstudy.transaction_service.stub.StubTransactClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot-path pieces of {@link TransactionServiceImpl} plus a full transferFund run against in-memory
+ * stubs. Run with {@code -prof gc} (the profile default) to get allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferPipelineBenchmark {
+    private static final int ACCOUNTS = 10_000;
+
+    private TransactionServiceImpl service;
+    private InMemoryTransactionRepository transactionRepository;
+    private InMemoryOutboxRepository outboxRepository;
+    private TransferRequestDTO request;
+    private CustomerResponseDTO sender;
+    private CustomerResponseDTO receiver;
+    private Transaction saved;
+    private int nextAccount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        transactionRepository = new InMemoryTransactionRepository();
+        outboxRepository = new InMemoryOutboxRepository();
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        // limits high enough that the benchmark measures the bookkeeping, not rejections
+        AccountVelocityLimiter limiter = new AccountVelocityLimiter(null, Clock.systemUTC(), true,
+                1e12, Integer.MAX_VALUE, 1e12, Integer.MAX_VALUE);
+        service = new TransactionServiceImpl(new StubTransactClient(), transactionRepository,
+                new PassThroughTransactionalOperator(), outboxRepository, objectMapper, limiter,
+                new TransferMetrics(new SimpleMeterRegistry()), new RecentWrites(new ReplicaDataSourceProperties()),
+                new TransactionCache(objectMapper, new SimpleMeterRegistry(), 10_000, Duration.ofSeconds(2), Duration.ofMinutes(10)),
+                new AccountSequencer(new SimpleMeterRegistry(), true, 64),
+                16, 100, Duration.ofMillis(50));
+
+        request = transferRequest(1);
+        sender = StubTransactClient.customer(1);
+        receiver = StubTransactClient.customer(2);
+        saved = service.checkTransactRequest(sender, request, receiver).block();
+        saved.setId(1);
+    }
+
+    @Setup(Level.Iteration)
+    public void clearStores() {
+        // keep the maps from growing across iterations
+        transactionRepository.deleteAll().block();
+        outboxRepository.deleteAll().block();
+    }
+
+    @Benchmark
+    public Transaction checkTransactRequest() {
+        return service.checkTransactRequest(sender, request, receiver).block();
+    }
+
+    @Benchmark
+    public PaymentRequestDTO mapToPaymtTrans() {
+        return service.mapToPaymtTrans(saved, request).block();
+    }
+
+    @Benchmark
+    public TransactionResponseDTO mapToTransResponseDto() {
+        return service.mapToTransResponseDto(saved, request).block();
+    }
+
+    @Benchmark
+    public TransactionResponseDTO transferFund() {
+        nextAccount = (nextAccount + 1) % ACCOUNTS;
+        return service.transferFund(transferRequest(nextAccount + 1)).block();
+    }
+
+    static TransferRequestDTO transferRequest(int accountId) {
+        TransferRequestDTO req = new TransferRequestDTO();
+        req.setAccountId(accountId);
+        req.setCustomerId(accountId);
+        req.setRecipientId(accountId + ACCOUNTS);
+        req.setAmount(125.50);
+        req.setDescription("rent");
+        return req;
+    }
+}
@@ -0,0 +1,44 @@
+package com.kenstudy.transaction_service.stub;
+
+import com.kenstudy.transaction_service.model.TransactionOutbox;
+import com.kenstudy.transaction_service.repository.TransactionOutboxRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class InMemoryOutboxRepository extends InMemoryCrudRepository<TransactionOutbox, Long> implements TransactionOutboxRepository {
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Override
+    protected Long idOf(TransactionOutbox entity) {
+        return entity.getId();
+    }
+
+    @Override
+    protected void assignId(TransactionOutbox entity) {
+        entity.setId(sequence.incrementAndGet());
+    }
+
+    @Override
+    public Mono<Integer> claimDue(String token, LocalDateTime now, int limit) {
+        return Mono.just(0);
+    }
+
+    @Override
+    public Flux<TransactionOutbox> findByClaimToken(String claimToken) {
+        return Flux.empty();
+    }
+
+    @Override
+    public Mono<Integer> recordOutcome(Long id, String token, String status, int attempts, LocalDateTime nextAttemptAt,
+                                       String lastError) {
+        return Mono.just(0);
+    }
+
+    @Override
+    public Mono<Integer> releaseStaleClaims(LocalDateTime claimedBefore) {
+        return Mono.just(0);
+    }
+}
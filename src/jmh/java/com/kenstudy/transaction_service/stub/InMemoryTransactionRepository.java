@@ -0,0 +1,49 @@
+package com.kenstudy.transaction_service.stub;
+
+import com.kenstudy.transaction_service.model.Transaction;
+import com.kenstudy.transaction_service.model.TransactionHistoryQuery;
+import com.kenstudy.transaction_service.repository.TransactionRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class InMemoryTransactionRepository extends InMemoryCrudRepository<Transaction, Integer> implements TransactionRepository {
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    @Override
+    protected Integer idOf(Transaction entity) {
+        return entity.getId();
+    }
+
+    @Override
+    protected void assignId(Transaction entity) {
+        entity.setId(sequence.incrementAndGet());
+    }
+
+    @Override
+    public Flux<Transaction> insertAll(List<Transaction> transactions) {
+        return saveAll(transactions);
+    }
+
+    @Override
+    public Flux<Transaction> findHistory(TransactionHistoryQuery query) {
+        return findAll().filter(t -> query.getAccountId() == null || query.getAccountId().equals(t.getAccountId()));
+    }
+
+    @Override
+    public Mono<Integer> compareAndSetStatus(Collection<Integer> ids, String from, String to, LocalDate date) {
+        return Flux.fromIterable(ids)
+                .flatMap(this::findById)
+                .filter(t -> from.equals(t.getTransactionStatus()))
+                .doOnNext(t -> {
+                    t.setTransactionStatus(to);
+                    t.setCreatedDate(date);
+                })
+                .count()
+                .map(Long::intValue);
+    }
+}
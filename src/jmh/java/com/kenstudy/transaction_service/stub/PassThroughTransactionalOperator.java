@@ -0,0 +1,24 @@
+package com.kenstudy.transaction_service.stub;
+
+import org.springframework.transaction.reactive.TransactionCallback;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class PassThroughTransactionalOperator implements TransactionalOperator {
+
+    @Override
+    public <T> Flux<T> transactional(Flux<T> flux) {
+        return flux;
+    }
+
+    @Override
+    public <T> Mono<T> transactional(Mono<T> mono) {
+        return mono;
+    }
+
+    @Override
+    public <T> Flux<T> execute(TransactionCallback<T> action) {
+        return Flux.from(action.doInTransaction(null));
+    }
+}
@@ -0,0 +1,42 @@
+package com.kenstudy.transaction_service.stub;
+
+import com.kenstudy.customer.CustomerResponseDTO;
+import com.kenstudy.payment.PaymentRequestDTO;
+import com.kenstudy.payment.PaymentResponseDTO;
+import com.kenstudy.transaction_service.config.DownstreamClientProperties;
+import com.kenstudy.transaction_service.config.client.CustomerDetailsCache;
+import com.kenstudy.transaction_service.config.client.TransactClient;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Answers account lookups and payments from memory: every account id belongs to customer id == account id.
+ */
+public class StubTransactClient extends TransactClient {
+
+    public StubTransactClient() {
+        super(WebClient.create(), WebClient.create(), new CustomerDetailsCache(1, Duration.ofSeconds(1)),
+                BulkheadRegistry.ofDefaults(), CircuitBreakerRegistry.ofDefaults(), new DownstreamClientProperties());
+    }
+
+    public static CustomerResponseDTO customer(Integer accountId) {
+        CustomerResponseDTO customer = new CustomerResponseDTO();
+        customer.setId(accountId);
+        customer.setAccountId(accountId);
+        return customer;
+    }
+
+    @Override
+    public Mono<CustomerResponseDTO> getCustomerAndAcctDetails(Integer accountId) {
+        return Mono.just(customer(accountId));
+    }
+
+    @Override
+    public Mono<PaymentResponseDTO> makePaymentTransfer(PaymentRequestDTO payDto) {
+        return Mono.just(new PaymentResponseDTO());
+    }
+}
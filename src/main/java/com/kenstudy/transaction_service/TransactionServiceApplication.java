@@ -1,9 +1,12 @@
 package com.kenstudy.transaction_service;
 
+import com.kenstudy.transaction_service.config.TransactionRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
+@ImportRuntimeHints(TransactionRuntimeHints.class)
 public class TransactionServiceApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,76 @@
+package com.kenstudy.transaction_service.admission;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AIMD concurrency limit: every request that finishes under {@code targetLatency} grows the limit by
+ * {@code 1/limit} (about +1 per full window), every slow or overloaded one shrinks it by
+ * {@code backoffRatio}. Requests over the limit are rejected immediately instead of queueing.
+ */
+class AdaptiveConcurrencyLimit {
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final double backoffRatio;
+    private volatile double limit;
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, Duration targetLatency, double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = targetLatency.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Returns a permit, or {@code null} when the current limit is reached.
+     */
+    Permit tryAcquire() {
+        if (inFlight.incrementAndGet() > (int) limit) {
+            inFlight.decrementAndGet();
+            return null;
+        }
+        return new Permit(System.nanoTime());
+    }
+
+    int limit() {
+        return (int) limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void adjust(long latencyNanos, boolean overloaded) {
+        if (overloaded || latencyNanos > targetLatencyNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    final class Permit {
+        private final long startNanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * Returns the slot; {@code sample} is false for outcomes that say nothing about capacity (e.g. cancellation).
+         */
+        void release(boolean sample, boolean overloaded) {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            inFlight.decrementAndGet();
+            if (sample) {
+                adjust(System.nanoTime() - startNanos, overloaded);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.kenstudy.transaction_service.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Transfers and reads get separate buckets and concurrency limits, so a wave of status polling
+ * cannot use up the capacity transfers need. Single transfers and batch rows draw on one global
+ * transfer bucket, so the batch route does not add a second global rate on top of the first.
+ */
+@Configuration
+@EnableConfigurationProperties(AdmissionProperties.class)
+public class AdmissionControlConfig {
+
+    @Bean
+    TokenBucket transferGlobalBucket(AdmissionProperties properties) {
+        return globalBucket(properties.getTransfer());
+    }
+
+    @Bean
+    public AdmissionControlFilter transferAdmissionFilter(AdmissionProperties properties, TokenBucket transferGlobalBucket,
+                                                          MeterRegistry meterRegistry) {
+        return new AdmissionControlFilter("transfer", properties.getTransfer(), transferGlobalBucket,
+                AdmissionControlFilter.Charge.SENDER, meterRegistry);
+    }
+
+    @Bean
+    public AdmissionControlFilter batchAdmissionFilter(AdmissionProperties properties, TokenBucket transferGlobalBucket,
+                                                       MeterRegistry meterRegistry) {
+        // a batch is one stream of many senders: it pays per row into the transfer bucket, but keeps its own
+        // concurrency limit
+        return new AdmissionControlFilter("transfer-batch", properties.getTransfer(), transferGlobalBucket,
+                AdmissionControlFilter.Charge.ROW, meterRegistry);
+    }
+
+    @Bean
+    public AdmissionControlFilter readAdmissionFilter(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        return new AdmissionControlFilter("read", properties.getRead(), globalBucket(properties.getRead()),
+                AdmissionControlFilter.Charge.REQUEST, meterRegistry);
+    }
+
+    private static TokenBucket globalBucket(AdmissionProperties.Limits limits) {
+        return new TokenBucket(limits.getGlobalRate(), limits.getGlobalBurst(), System.nanoTime());
+    }
+}
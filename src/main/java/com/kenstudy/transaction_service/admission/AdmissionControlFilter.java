@@ -0,0 +1,203 @@
+package com.kenstudy.transaction_service.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kenstudy.transaction.TransferRequestDTO;
+import com.kenstudy.transaction_service.exception.AdmissionRejectedException;
+import com.kenstudy.transaction_service.exception.ServiceOverloadedException;
+import com.kenstudy.transaction_service.exception.TooManyRequestsException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseCookie;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.server.HandlerFilterFunction;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sheds load before a request reaches its handler: a global token bucket, an optional per-account
+ * bucket keyed by the sender of a transfer, then an adaptive concurrency limit. Rejections are raised
+ * as {@link AdmissionRejectedException}s so GlobalExceptionHandler renders them with Retry-After.
+ * <p>
+ * The concurrency permit is held until the response body has been written, so streamed responses count
+ * for as long as they stream.
+ * <p>
+ * The per-account check needs the request body, so the filter decodes the {@link TransferRequestDTO}
+ * and leaves it in {@link #TRANSFER_REQUEST_ATTRIBUTE} for the handler instead of the consumed body.
+ * A batch is charged per row in the same way: the filter leaves the decoded rows, paced by the global
+ * bucket, in {@link #TRANSFER_BATCH_ATTRIBUTE}.
+ */
+public class AdmissionControlFilter implements HandlerFilterFunction<ServerResponse, ServerResponse> {
+    public static final String TRANSFER_REQUEST_ATTRIBUTE = AdmissionControlFilter.class.getName() + ".TRANSFER_REQUEST";
+    public static final String TRANSFER_BATCH_ATTRIBUTE = AdmissionControlFilter.class.getName() + ".TRANSFER_BATCH";
+
+    /**
+     * What a request is charged beyond one token from the global bucket.
+     */
+    public enum Charge {
+        // nothing more
+        REQUEST,
+        // a token from the sending account's bucket, when account-rate is set
+        SENDER,
+        // a global token for every row of a streamed batch after the first, which rides on the request's token
+        ROW
+    }
+
+    private final String name;
+    private final AdmissionProperties.Limits limits;
+    private final TokenBucket global;
+    private final Charge charge;
+    private final Cache<Integer, TokenBucket> accounts;
+    private final AdaptiveConcurrencyLimit concurrency;
+    private final MeterRegistry meterRegistry;
+
+    AdmissionControlFilter(String name, AdmissionProperties.Limits limits, TokenBucket global, Charge charge,
+                           MeterRegistry meterRegistry) {
+        this.name = name;
+        this.limits = limits;
+        this.global = global;
+        this.charge = charge;
+        this.accounts = charge == Charge.SENDER && limits.getAccountRate() > 0
+                ? Caffeine.newBuilder().expireAfterAccess(Duration.ofMinutes(10)).maximumSize(1_000_000).build()
+                : null;
+        this.concurrency = new AdaptiveConcurrencyLimit(limits.getInitialConcurrency(), limits.getMinConcurrency(),
+                limits.getMaxConcurrency(), limits.getTargetLatency(), limits.getBackoffRatio());
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("transaction.admission.concurrency.limit", concurrency, AdaptiveConcurrencyLimit::limit)
+                .tag("route", name).register(meterRegistry);
+        Gauge.builder("transaction.admission.in-flight", concurrency, AdaptiveConcurrencyLimit::inFlight)
+                .tag("route", name).register(meterRegistry);
+    }
+
+    @Override
+    public Mono<ServerResponse> filter(ServerRequest request, HandlerFunction<ServerResponse> next) {
+        if (!limits.isEnabled()) {
+            return next.handle(request);
+        }
+        long waitNanos = global.tryAcquire(System.nanoTime());
+        if (waitNanos > 0) {
+            return reject(new TooManyRequestsException("Too many " + name + " requests", Duration.ofNanos(waitNanos)), "global-rate");
+        }
+        if (charge == Charge.ROW) {
+            request.attributes().put(TRANSFER_BATCH_ATTRIBUTE, request.bodyToFlux(TransferRequestDTO.class)
+                    .index()
+                    .concatMap(row -> row.getT1() == 0 ? Mono.just(row.getT2()) : awaitToken().thenReturn(row.getT2())));
+            return admit(request, next);
+        }
+        if (accounts == null) {
+            return admit(request, next);
+        }
+        return request.bodyToMono(TransferRequestDTO.class)
+                .flatMap(transfer -> {
+                    request.attributes().put(TRANSFER_REQUEST_ATTRIBUTE, transfer);
+                    long accountWait = transfer.getAccountId() == null ? 0 : accounts
+                            .get(transfer.getAccountId(), id -> new TokenBucket(limits.getAccountRate(), limits.getAccountBurst(), System.nanoTime()))
+                            .tryAcquire(System.nanoTime());
+                    if (accountWait > 0) {
+                        return reject(new TooManyRequestsException("Too many transfers from account " + transfer.getAccountId(),
+                                Duration.ofNanos(accountWait)), "account-rate");
+                    }
+                    return admit(request, next);
+                })
+                .switchIfEmpty(Mono.defer(() -> admit(request, next)));
+    }
+
+    private Mono<ServerResponse> admit(ServerRequest request, HandlerFunction<ServerResponse> next) {
+        AdaptiveConcurrencyLimit.Permit permit = concurrency.tryAcquire();
+        if (permit == null) {
+            return reject(new ServiceOverloadedException("Too many " + name + " requests in flight",
+                    limits.getOverloadRetryAfter()), "concurrency");
+        }
+        return next.handle(request)
+                .<ServerResponse>map(response -> new PermitHoldingResponse(response, permit))
+                .doOnSuccess(response -> {
+                    if (response == null) {
+                        permit.release(true, false);
+                    }
+                })
+                .doOnError(ex -> permit.release(true, isOverload(ex)))
+                .doOnCancel(() -> permit.release(false, false));
+    }
+
+    // a row waits for its token instead of failing: the results are already streaming back, and a slower
+    // read of the upload is the backpressure a batch client can act on
+    private Mono<Void> awaitToken() {
+        return Mono.defer(() -> {
+            long waitNanos = global.tryAcquire(System.nanoTime());
+            return waitNanos == 0 ? Mono.<Void>empty() : Mono.delay(Duration.ofNanos(waitNanos)).then(awaitToken());
+        });
+    }
+
+    private Mono<ServerResponse> reject(AdmissionRejectedException ex, String reason) {
+        Counter.builder("transaction.admission.rejected")
+                .tag("route", name)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        return Mono.error(ex);
+    }
+
+    /**
+     * Keeps the permit until the response is written rather than until the handler returns it: the
+     * batch results and the NDJSON history are produced while the body streams. A streamed body takes
+     * as long as it is large, so only its failures feed the limit, not its duration.
+     */
+    private static final class PermitHoldingResponse implements ServerResponse {
+        private final ServerResponse delegate;
+        private final AdaptiveConcurrencyLimit.Permit permit;
+
+        private PermitHoldingResponse(ServerResponse delegate, AdaptiveConcurrencyLimit.Permit permit) {
+            this.delegate = delegate;
+            this.permit = permit;
+        }
+
+        @Override
+        public HttpStatusCode statusCode() {
+            return delegate.statusCode();
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public int rawStatusCode() {
+            return delegate.rawStatusCode();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return delegate.headers();
+        }
+
+        @Override
+        public MultiValueMap<String, ResponseCookie> cookies() {
+            return delegate.cookies();
+        }
+
+        @Override
+        public Mono<Void> writeTo(ServerWebExchange exchange, Context context) {
+            MediaType contentType = delegate.headers().getContentType();
+            boolean streamed = contentType != null && MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType);
+            return delegate.writeTo(exchange, context)
+                    .doOnSuccess(done -> permit.release(!streamed, false))
+                    .doOnError(ex -> permit.release(true, isOverload(ex)))
+                    .doOnCancel(() -> permit.release(false, false));
+        }
+    }
+
+    // downstream saturation is the signal the limit should back off on; business errors are not
+    private static boolean isOverload(Throwable ex) {
+        return ex instanceof TimeoutException || ex instanceof BulkheadFullException
+                || ex instanceof CallNotPermittedException || ex instanceof ServiceOverloadedException;
+    }
+}
@@ -0,0 +1,30 @@
+package com.kenstudy.transaction_service.admission;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "transaction.admission")
+public class AdmissionProperties {
+    private Limits transfer = new Limits();
+    private Limits read = new Limits();
+
+    @Data
+    public static class Limits {
+        private boolean enabled = true;
+        // requests per second across the instance, refilled continuously, with bursts up to global-burst
+        private double globalRate = 500;
+        private double globalBurst = 1000;
+        // per sender account; 0 disables the per-account bucket
+        private double accountRate = 0;
+        private double accountBurst = 0;
+        private int initialConcurrency = 100;
+        private int minConcurrency = 10;
+        private int maxConcurrency = 1000;
+        private Duration targetLatency = Duration.ofMillis(500);
+        private double backoffRatio = 0.9;
+        private Duration overloadRetryAfter = Duration.ofSeconds(1);
+    }
+}
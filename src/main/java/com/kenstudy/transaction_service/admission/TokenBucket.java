@@ -0,0 +1,37 @@
+package com.kenstudy.transaction_service.admission;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free token bucket refilled continuously at {@code ratePerSecond} up to {@code burst} tokens.
+ */
+class TokenBucket {
+    private final double capacity;
+    private final double tokensPerNano;
+    private final AtomicReference<State> state;
+
+    TokenBucket(double ratePerSecond, double burst, long nowNanos) {
+        this.capacity = Math.max(1, burst);
+        this.tokensPerNano = ratePerSecond / 1e9;
+        this.state = new AtomicReference<>(new State(capacity, nowNanos));
+    }
+
+    /**
+     * Takes one token, returning 0; or, when the bucket is empty, the nanos until one is available.
+     */
+    long tryAcquire(long nowNanos) {
+        while (true) {
+            State current = state.get();
+            double tokens = Math.min(capacity, current.tokens() + Math.max(0, nowNanos - current.at()) * tokensPerNano);
+            if (tokens < 1) {
+                return (long) Math.ceil((1 - tokens) / tokensPerNano);
+            }
+            if (state.compareAndSet(current, new State(tokens - 1, nowNanos))) {
+                return 0;
+            }
+        }
+    }
+
+    private record State(double tokens, long at) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.kenstudy.transaction_service.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Adds application/cbor next to JSON for the inbound router and, through Boot's WebClient.Builder,
+ * the outbound clients. JSON stays the default; CBOR is used only when a peer asks for it. The
+ * Jackson CBOR codecs handle single values only, so streaming (NDJSON) endpoints remain JSON.
+ */
+@Configuration
+public class CborCodecConfig {
+
+    // not exposed as an ObjectMapper bean: that would make Boot back off from creating the JSON one
+    @Bean
+    public CodecCustomizer cborCodecCustomizer(Jackson2ObjectMapperBuilder builder) {
+        // same modules and settings as the JSON mapper, binary wire format
+        ObjectMapper cborObjectMapper = builder.factory(new CBORFactory()).build();
+        return configurer -> {
+            configurer.customCodecs().register(new Jackson2CborEncoder(cborObjectMapper));
+            configurer.customCodecs().register(new Jackson2CborDecoder(cborObjectMapper));
+        };
+    }
+}
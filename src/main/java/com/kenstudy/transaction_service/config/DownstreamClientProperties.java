@@ -0,0 +1,58 @@
+package com.kenstudy.transaction_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.MediaType;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "transaction.client")
+public class DownstreamClientProperties {
+    private Downstream account = new Downstream("http://localhost:4001");
+    private Downstream payment = new Downstream("http://localhost:4003");
+    private AccountBatch accountBatch = new AccountBatch();
+
+    @Data
+    public static class Downstream {
+        private String baseUrl;
+        private int maxConnections = 200;
+        private int pendingAcquireMaxCount = 1000;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration connectTimeout = Duration.ofSeconds(1);
+        private Duration responseTimeout = Duration.ofSeconds(3);
+        // wire format for request and response bodies; only switch to CBOR once the peer understands it
+        private Codec codec = Codec.JSON;
+
+        public Downstream() {
+        }
+
+        public Downstream(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+    }
+
+    public enum Codec {
+        JSON(MediaType.APPLICATION_JSON),
+        CBOR(MediaType.APPLICATION_CBOR);
+
+        private final MediaType mediaType;
+
+        Codec(MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public MediaType mediaType() {
+            return mediaType;
+        }
+    }
+
+    @Data
+    public static class AccountBatch {
+        private boolean enabled = false;
+        private int maxSize = 100;
+        private Duration window = Duration.ofMillis(5);
+        private int maxInFlightBatches = 16;
+    }
+}
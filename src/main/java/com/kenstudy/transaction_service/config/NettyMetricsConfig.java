@@ -0,0 +1,31 @@
+package com.kenstudy.transaction_service.config;
+
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.regex.Pattern;
+
+/**
+ * Turns on Reactor Netty's own server metrics (reactor.netty.http.server.*). The outbound clients
+ * enable theirs in {@link WebClientConfig}; R2DBC pool gauges (r2dbc.pool.*) are registered by
+ * Spring Boot once actuator and r2dbc-pool are both on the classpath.
+ */
+@Configuration
+public class NettyMetricsConfig {
+    private static final Pattern ID_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+
+    @Bean
+    public NettyServerCustomizer nettyServerMetrics() {
+        return httpServer -> httpServer.metrics(true, NettyMetricsConfig::uriTag);
+    }
+
+    /**
+     * Collapses ids and query strings so every transaction id does not become its own time series.
+     */
+    static String uriTag(String uri) {
+        int query = uri.indexOf('?');
+        String path = query < 0 ? uri : uri.substring(0, query);
+        return ID_SEGMENT.matcher(path).replaceAll("/{id}");
+    }
+}
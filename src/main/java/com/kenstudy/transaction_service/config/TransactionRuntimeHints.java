@@ -0,0 +1,50 @@
+package com.kenstudy.transaction_service.config;
+
+import com.kenstudy.customer.CustomerResponseDTO;
+import com.kenstudy.payment.PaymentRequestDTO;
+import com.kenstudy.payment.PaymentResponseDTO;
+import com.kenstudy.transaction.TransactType;
+import com.kenstudy.transaction.TransactionResponseDTO;
+import com.kenstudy.transaction.TransferRequestDTO;
+import com.kenstudy.transaction_service.exception.DownstreamServerException;
+import com.kenstudy.transaction_service.exception.ErrorMessageResponse;
+import com.kenstudy.transaction_service.exception.ResourceNotFoundException;
+import com.kenstudy.transaction_service.model.BatchTransferResult;
+import com.kenstudy.transaction_service.model.IdempotencyRecord;
+import com.kenstudy.transaction_service.model.Transaction;
+import com.kenstudy.transaction_service.model.TransactionHistoryPage;
+import com.kenstudy.transaction_service.model.TransactionOutbox;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.support.BindingReflectionHintsRegistrar;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Hints for the AOT and native builds (see the fast-startup and native profiles in pom.xml). Spring's
+ * AOT pass already covers the beans, the functional routes and the R2DBC repositories; it cannot see
+ * types that Jackson binds only through ObjectMapper, bodyValue/bodyToMono or Kafka, classes named in
+ * configuration, or resources read by path.
+ */
+public class TransactionRuntimeHints implements RuntimeHintsRegistrar {
+    private final BindingReflectionHintsRegistrar bindingHints = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        bindingHints.registerReflectionHints(hints.reflection(),
+                TransferRequestDTO.class, TransactionResponseDTO.class, TransactType.class,
+                CustomerResponseDTO.class, PaymentRequestDTO.class, PaymentResponseDTO.class,
+                Transaction.class, TransactionOutbox.class, IdempotencyRecord.class,
+                BatchTransferResult.class, TransactionHistoryPage.class, ErrorMessageResponse.class);
+
+        // resilience4j.circuitbreaker.configs.default.record-exceptions resolves these by name
+        hints.reflection()
+                .registerType(ResourceNotFoundException.class)
+                .registerType(DownstreamServerException.class)
+                .registerType(WebClientRequestException.class)
+                .registerType(TimeoutException.class);
+
+        hints.resources().registerPattern("schema.sql");
+    }
+}
@@ -1,18 +1,44 @@
 package com.kenstudy.transaction_service.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.web.WebProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.transaction.ReactiveTransactionManager;
 import org.springframework.transaction.reactive.TransactionalOperator;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 @Configuration
+@EnableConfigurationProperties(DownstreamClientProperties.class)
 public class WebClientConfig {
+    // each downstream gets its own pool so a slow payment service cannot starve account lookups
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider accountConnectionProvider(DownstreamClientProperties properties) {
+        return connectionProvider("account", properties.getAccount());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider paymentConnectionProvider(DownstreamClientProperties properties) {
+        return connectionProvider("payment", properties.getPayment());
+    }
+
     @Bean
-    public WebClient webClient() {
+    public WebClient accountWebClient(WebClient.Builder webClientBuilder, DownstreamClientProperties properties,
+                                      @Qualifier("accountConnectionProvider") ConnectionProvider provider) {
+        return webClient(webClientBuilder, properties.getAccount(), provider);
+    }
 
-        return WebClient.builder().build();
+    @Bean
+    public WebClient paymentWebClient(WebClient.Builder webClientBuilder, DownstreamClientProperties properties,
+                                      @Qualifier("paymentConnectionProvider") ConnectionProvider provider) {
+        return webClient(webClientBuilder, properties.getPayment(), provider);
     }
 
     @Bean
@@ -24,4 +50,28 @@ public class WebClientConfig {
     public WebProperties.Resources webResources() {
         return new WebProperties.Resources();
     }
+
+    private ConnectionProvider connectionProvider(String name, DownstreamClientProperties.Downstream downstream) {
+        return ConnectionProvider.builder(name)
+                .maxConnections(downstream.getMaxConnections())
+                .pendingAcquireMaxCount(downstream.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(downstream.getPendingAcquireTimeout())
+                .maxIdleTime(downstream.getMaxIdleTime())
+                .evictInBackground(Duration.ofSeconds(30))
+                .metrics(true)
+                .build();
+    }
+
+    private WebClient webClient(WebClient.Builder webClientBuilder, DownstreamClientProperties.Downstream downstream,
+                                ConnectionProvider provider) {
+        HttpClient httpClient = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) downstream.getConnectTimeout().toMillis())
+                .responseTimeout(downstream.getResponseTimeout())
+                .metrics(true, NettyMetricsConfig::uriTag);
+
+        return webClientBuilder.clone()
+                .baseUrl(downstream.getBaseUrl())
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
 }
@@ -0,0 +1,48 @@
+package com.kenstudy.transaction_service.config.client;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Operator view of {@link CustomerDetailsCache} at {@code /actuator/accountcache}: stats on GET,
+ * {@code DELETE /actuator/accountcache/{accountId}} drops one account after it changed upstream.
+ * Living under actuator keeps it off the business routes and behind whatever guards the
+ * management endpoints (exposure list, management port, network policy).
+ */
+@Component
+@Endpoint(id = "accountcache")
+public class AccountCacheEndpoint {
+    private final CustomerDetailsCache customerDetailsCache;
+
+    @Autowired
+    public AccountCacheEndpoint(CustomerDetailsCache customerDetailsCache) {
+        this.customerDetailsCache = customerDetailsCache;
+    }
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        CacheStats stats = customerDetailsCache.stats();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("size", customerDetailsCache.size());
+        body.put("hitCount", stats.hitCount());
+        body.put("missCount", stats.missCount());
+        body.put("hitRate", stats.hitRate());
+        body.put("loadFailureCount", stats.loadFailureCount());
+        body.put("evictionCount", stats.evictionCount());
+        body.put("averageLoadPenaltyNanos", stats.averageLoadPenalty());
+        return body;
+    }
+
+    @DeleteOperation
+    public void evict(@Selector Integer accountId) {
+        customerDetailsCache.invalidate(accountId);
+    }
+}
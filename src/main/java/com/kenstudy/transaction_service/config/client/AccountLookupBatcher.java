@@ -0,0 +1,86 @@
+package com.kenstudy.transaction_service.config.client;
+
+import com.kenstudy.customer.CustomerResponseDTO;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Collects account lookups from concurrent callers for up to {@code window} or {@code maxSize}
+ * distinct requests and resolves them with one bulk call. An account missing from the bulk response
+ * completes only its own callers empty; a failed bulk call fails just the callers in that batch.
+ */
+@Slf4j
+public class AccountLookupBatcher {
+    private static final Duration EMIT_RETRY = Duration.ofMillis(100);
+
+    private final Sinks.Many<PendingLookup> pending = Sinks.many().unicast()
+            .onBackpressureBuffer(Queues.<PendingLookup>unboundedMultiproducer().get());
+    private final Function<Set<Integer>, Mono<List<CustomerResponseDTO>>> bulkFetch;
+    private final Disposable dispatcher;
+
+    public AccountLookupBatcher(Function<Set<Integer>, Mono<List<CustomerResponseDTO>>> bulkFetch,
+                                int maxSize, Duration window, int maxInFlightBatches) {
+        this.bulkFetch = bulkFetch;
+        this.dispatcher = pending.asFlux()
+                .bufferTimeout(maxSize, window, true)
+                .flatMap(this::dispatch, maxInFlightBatches)
+                .subscribe();
+    }
+
+    public Mono<CustomerResponseDTO> lookup(Integer accountId) {
+        return Mono.defer(() -> {
+            Sinks.One<CustomerResponseDTO> result = Sinks.one();
+            pending.emitNext(new PendingLookup(accountId, result), Sinks.EmitFailureHandler.busyLooping(EMIT_RETRY));
+            return result.asMono();
+        });
+    }
+
+    public void dispose() {
+        dispatcher.dispose();
+    }
+
+    private Mono<Void> dispatch(List<PendingLookup> batch) {
+        Map<Integer, List<Sinks.One<CustomerResponseDTO>>> waiting = new LinkedHashMap<>();
+        for (PendingLookup lookup : batch) {
+            waiting.computeIfAbsent(lookup.accountId(), id -> new ArrayList<>()).add(lookup.result());
+        }
+
+        return bulkFetch.apply(waiting.keySet())
+                .defaultIfEmpty(List.of())
+                .doOnNext(found -> {
+                    Map<Integer, CustomerResponseDTO> byAccount = new HashMap<>();
+                    found.forEach(customer -> byAccount.put(customer.getAccountId(), customer));
+                    waiting.forEach((accountId, sinks) -> {
+                        CustomerResponseDTO customer = byAccount.get(accountId);
+                        sinks.forEach(sink -> {
+                            if (customer == null) {
+                                sink.tryEmitEmpty();
+                            } else {
+                                sink.tryEmitValue(customer);
+                            }
+                        });
+                    });
+                })
+                .doOnError(ex -> {
+                    log.warn("Bulk account lookup for {} accounts failed: {}", waiting.size(), ex.getMessage());
+                    waiting.values().forEach(sinks -> sinks.forEach(sink -> sink.tryEmitError(ex)));
+                })
+                .onErrorResume(ex -> Mono.empty())
+                .then();
+    }
+
+    private record PendingLookup(Integer accountId, Sinks.One<CustomerResponseDTO> result) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.kenstudy.transaction_service.config.client;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.kenstudy.customer.CustomerResponseDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of account-service lookups keyed by accountId. Concurrent misses for the same
+ * account share one in-flight call; failed or empty lookups are never cached.
+ */
+@Slf4j
+@Component
+public class CustomerDetailsCache {
+    private final AsyncCache<Integer, CustomerResponseDTO> cache;
+
+    public CustomerDetailsCache(@Value("${transaction.client.account-cache.max-size:10000}") long maxSize,
+                                @Value("${transaction.client.account-cache.ttl:30s}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+    }
+
+    public Mono<CustomerResponseDTO> get(Integer accountId, Function<Integer, Mono<CustomerResponseDTO>> loader) {
+        // suppress cancel: one subscriber going away must not cancel the call other callers are waiting on
+        return Mono.fromFuture(cache.get(accountId, (key, executor) -> loader.apply(key).toFuture()), true);
+    }
+
+    public void invalidate(Integer accountId) {
+        log.info("Evicting cached account details for account {}", accountId);
+        cache.synchronous().invalidate(accountId);
+    }
+
+    public long size() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+}
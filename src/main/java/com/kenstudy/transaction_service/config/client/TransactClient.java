@@ -4,33 +4,111 @@ package com.kenstudy.transaction_service.config.client;
 import com.kenstudy.customer.CustomerResponseDTO;
 import com.kenstudy.payment.PaymentRequestDTO;
 import com.kenstudy.payment.PaymentResponseDTO;
+import com.kenstudy.transaction_service.config.DownstreamClientProperties;
+import com.kenstudy.transaction_service.exception.DownstreamServerException;
 import com.kenstudy.transaction_service.exception.ErrorMessageResponse;
 import com.kenstudy.transaction_service.exception.ResourceNotFoundException;
 import com.kenstudy.transaction_service.exception.TransactionNotFoundException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.Set;
+
 @Slf4j
 @Component
 public class TransactClient {
-    private static final String URL_ACCOUNT_HOST = "http://localhost:4001";
-    private static final String URL_PAYMT_HOST = "http://localhost:4003";
-    private final WebClient webClient;
+    private static final ParameterizedTypeReference<List<CustomerResponseDTO>> CUSTOMER_LIST = new ParameterizedTypeReference<>() {
+    };
+
+    private final WebClient accountWebClient;
+    private final WebClient paymentWebClient;
+    private final CustomerDetailsCache customerDetailsCache;
+    private final Bulkhead accountBulkhead;
+    private final Bulkhead paymentBulkhead;
+    private final CircuitBreaker accountCircuitBreaker;
+    private final CircuitBreaker paymentCircuitBreaker;
+    private final AccountLookupBatcher accountLookupBatcher;
+    private final MediaType accountMediaType;
+    private final MediaType paymentMediaType;
 
     @Autowired
-    public TransactClient(WebClient.Builder webClientBuilder) {
-        this.webClient = webClientBuilder.baseUrl(URL_ACCOUNT_HOST).build();
+    public TransactClient(@Qualifier("accountWebClient") WebClient accountWebClient,
+                          @Qualifier("paymentWebClient") WebClient paymentWebClient,
+                          CustomerDetailsCache customerDetailsCache,
+                          BulkheadRegistry bulkheadRegistry, CircuitBreakerRegistry circuitBreakerRegistry,
+                          DownstreamClientProperties properties) {
+        this.accountWebClient = accountWebClient;
+        this.paymentWebClient = paymentWebClient;
+        this.customerDetailsCache = customerDetailsCache;
+        this.accountBulkhead = bulkheadRegistry.bulkhead("account");
+        this.paymentBulkhead = bulkheadRegistry.bulkhead("payment");
+        this.accountCircuitBreaker = circuitBreakerRegistry.circuitBreaker("account");
+        this.paymentCircuitBreaker = circuitBreakerRegistry.circuitBreaker("payment");
+        this.accountMediaType = properties.getAccount().getCodec().mediaType();
+        this.paymentMediaType = properties.getPayment().getCodec().mediaType();
+
+        DownstreamClientProperties.AccountBatch batch = properties.getAccountBatch();
+        this.accountLookupBatcher = batch.isEnabled()
+                ? new AccountLookupBatcher(this::fetchCustomerAndAcctDetailsBulk, batch.getMaxSize(), batch.getWindow(), batch.getMaxInFlightBatches())
+                : null;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (accountLookupBatcher != null) {
+            accountLookupBatcher.dispose();
+        }
     }
 
     public Mono<CustomerResponseDTO> getCustomerAndAcctDetails(Integer accountId) {
-        return webClient.get()
+        if (accountLookupBatcher != null) {
+            return customerDetailsCache.get(accountId, accountLookupBatcher::lookup);
+        }
+        return customerDetailsCache.get(accountId, this::fetchCustomerAndAcctDetails);
+    }
+
+    private Mono<List<CustomerResponseDTO>> fetchCustomerAndAcctDetailsBulk(Set<Integer> accountIds) {
+        return accountWebClient.post()
+                .uri("/v1/account/customer-acct-details/bulk")
+                .contentType(accountMediaType)
+                .accept(accountMediaType, MediaType.APPLICATION_JSON)
+                .bodyValue(accountIds)
+                .retrieve()
+                .onStatus(HttpStatusCode::is4xxClientError, clientResponse ->
+                    clientResponse.bodyToMono(ErrorMessageResponse.class)
+                        .flatMap(body -> Mono.error(
+                            new TransactionNotFoundException(
+                                "Account service client error: " + body.getMessage()))))
+                .onStatus(HttpStatusCode::is5xxServerError, clientResponse ->
+                    clientResponse.bodyToMono(ErrorMessageResponse.class)
+                        .flatMap(body -> Mono.error(
+                            new ResourceNotFoundException(
+                                "Account server error: " + body.getMessage()))))
+                // a single list value rather than a Flux: the CBOR decoder cannot split a top-level array
+                .bodyToMono(CUSTOMER_LIST)
+                .transformDeferred(BulkheadOperator.of(accountBulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(accountCircuitBreaker));
+    }
+
+    private Mono<CustomerResponseDTO> fetchCustomerAndAcctDetails(Integer accountId) {
+        return accountWebClient.get()
                 .uri("/v1/account/customer-acct-details/{accountId}", accountId)
-                .accept(MediaType.APPLICATION_JSON).retrieve()
+                .accept(accountMediaType, MediaType.APPLICATION_JSON).retrieve()
                 .onStatus(HttpStatusCode::is4xxClientError, clientResponse ->
                     clientResponse.bodyToMono(ErrorMessageResponse.class)
                         .flatMap(body -> Mono.error(
@@ -41,12 +119,17 @@ public class TransactClient {
                         .flatMap(body -> Mono.error(
                             new ResourceNotFoundException(
                                 "Account server error: " + body.getMessage()))))
-                .bodyToMono(CustomerResponseDTO.class);
+                .bodyToMono(CustomerResponseDTO.class)
+                // bulkhead inside the breaker: a full bulkhead rejects without counting as a downstream failure
+                .transformDeferred(BulkheadOperator.of(accountBulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(accountCircuitBreaker));
     }
 
     public Mono<PaymentResponseDTO> makePaymentTransfer(PaymentRequestDTO payDto) {
 
         log.info("Payment delivery payload :::: {} ", payDto);
-        return webClient.post().uri(URL_PAYMT_HOST + "/v1/payment/make-transfer").contentType(MediaType.APPLICATION_JSON).bodyValue(payDto).retrieve().onStatus(HttpStatusCode::is4xxClientError, response -> response.bodyToMono(String.class).flatMap(body -> Mono.error(new TransactionNotFoundException("Client errorMessage calling payment-delivery (" + response.statusCode() + "): " + body)))).onStatus(HttpStatusCode::is5xxServerError, response -> response.bodyToMono(String.class).flatMap(body -> Mono.error(new TransactionNotFoundException("Server error (" + response.statusCode() + "): " + body)))).bodyToMono(PaymentResponseDTO.class);
+        return paymentWebClient.post().uri("/v1/payment/make-transfer").contentType(paymentMediaType).accept(paymentMediaType, MediaType.APPLICATION_JSON).bodyValue(payDto).retrieve().onStatus(HttpStatusCode::is4xxClientError, response -> response.bodyToMono(String.class).flatMap(body -> Mono.error(new TransactionNotFoundException("Client errorMessage calling payment-delivery (" + response.statusCode() + "): " + body)))).onStatus(HttpStatusCode::is5xxServerError, response -> response.bodyToMono(String.class).flatMap(body -> Mono.error(new DownstreamServerException("Server error (" + response.statusCode() + "): " + body)))).bodyToMono(PaymentResponseDTO.class)
+                .transformDeferred(BulkheadOperator.of(paymentBulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(paymentCircuitBreaker));
     }
 }
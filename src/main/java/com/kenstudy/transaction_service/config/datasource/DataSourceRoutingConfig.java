@@ -0,0 +1,79 @@
+package com.kenstudy.transaction_service.config.datasource;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.util.StringUtils;
+
+/**
+ * Primary and replica R2DBC pools, each sized on its own, behind one routing {@link ConnectionFactory}.
+ * Repositories, the transaction manager and schema init all see the routing factory.
+ */
+@Configuration
+@EnableConfigurationProperties({R2dbcProperties.class, ReplicaDataSourceProperties.class})
+public class DataSourceRoutingConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool primaryConnectionPool(R2dbcProperties properties) {
+        R2dbcProperties.Pool pool = properties.getPool();
+        ConnectionPoolConfiguration.Builder builder = ConnectionPoolConfiguration
+                .builder(connectionFactory(properties.getUrl(), properties.getUsername(), properties.getPassword()))
+                .name("primary")
+                .initialSize(pool.getInitialSize())
+                .maxSize(pool.getMaxSize())
+                .maxIdleTime(pool.getMaxIdleTime());
+        if (pool.getMaxAcquireTime() != null) {
+            builder.maxAcquireTime(pool.getMaxAcquireTime());
+        }
+        if (pool.getMaxLifeTime() != null) {
+            builder.maxLifeTime(pool.getMaxLifeTime());
+        }
+        if (StringUtils.hasText(pool.getValidationQuery())) {
+            builder.validationQuery(pool.getValidationQuery());
+        }
+        return new ConnectionPool(builder.build());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    @ConditionalOnProperty("transaction.datasource.replica.url")
+    public ConnectionPool replicaConnectionPool(ReplicaDataSourceProperties properties, R2dbcProperties primary) {
+        ReplicaDataSourceProperties.Replica replica = properties.getReplica();
+        String username = replica.getUsername() != null ? replica.getUsername() : primary.getUsername();
+        String password = replica.getPassword() != null ? replica.getPassword() : primary.getPassword();
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory(replica.getUrl(), username, password))
+                .name("replica")
+                .initialSize(replica.getInitialSize())
+                .maxSize(replica.getMaxSize())
+                .maxIdleTime(replica.getMaxIdleTime())
+                .maxAcquireTime(replica.getMaxAcquireTime())
+                .build());
+    }
+
+    @Bean
+    @Primary
+    public ReplicaRoutingConnectionFactory connectionFactory(@Qualifier("primaryConnectionPool") ConnectionPool primary,
+                                                            @Qualifier("replicaConnectionPool") ObjectProvider<ConnectionPool> replica) {
+        return new ReplicaRoutingConnectionFactory(primary, replica.getIfAvailable(() -> primary));
+    }
+
+    private static ConnectionFactory connectionFactory(String url, String username, String password) {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        if (StringUtils.hasText(username)) {
+            options.option(ConnectionFactoryOptions.USER, username);
+        }
+        if (password != null) {
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        return ConnectionFactories.get(options.build());
+    }
+}
@@ -0,0 +1,29 @@
+package com.kenstudy.transaction_service.config.datasource;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+/**
+ * Marks a pipeline as safe to serve from the replica. The hint only affects connections acquired
+ * outside a transaction: a {@code TransactionalOperator} binds its primary connection first and
+ * every statement inside reuses it.
+ */
+public final class ReadOnlyRouting {
+    static final String KEY = ReadOnlyRouting.class.getName() + ".READ_ONLY";
+
+    private ReadOnlyRouting() {
+    }
+
+    public static <T> Mono<T> readOnly(Mono<T> mono) {
+        return mono.contextWrite(ctx -> ctx.put(KEY, Boolean.TRUE));
+    }
+
+    public static <T> Flux<T> readOnly(Flux<T> flux) {
+        return flux.contextWrite(ctx -> ctx.put(KEY, Boolean.TRUE));
+    }
+
+    static boolean isReadOnly(ContextView ctx) {
+        return ctx.getOrDefault(KEY, Boolean.FALSE);
+    }
+}
@@ -0,0 +1,29 @@
+package com.kenstudy.transaction_service.config.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Read replica pool. The primary pool keeps using {@code spring.r2dbc.*}; when no replica url is
+ * configured every read goes to the primary.
+ */
+@Data
+@ConfigurationProperties(prefix = "transaction.datasource")
+public class ReplicaDataSourceProperties {
+    // how long reads for a freshly written transaction or account stay on the primary
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+    private Replica replica = new Replica();
+
+    @Data
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+        private int initialSize = 5;
+        private int maxSize = 20;
+        private Duration maxIdleTime = Duration.ofMinutes(30);
+        private Duration maxAcquireTime = Duration.ofSeconds(2);
+    }
+}
@@ -0,0 +1,27 @@
+package com.kenstudy.transaction_service.config.datasource;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.r2dbc.connection.lookup.AbstractRoutingConnectionFactory;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Sends connections requested under {@link ReadOnlyRouting#readOnly} to the replica pool and
+ * everything else, including transaction begin, to the primary.
+ */
+public class ReplicaRoutingConnectionFactory extends AbstractRoutingConnectionFactory {
+    static final String PRIMARY = "primary";
+    static final String REPLICA = "replica";
+
+    public ReplicaRoutingConnectionFactory(ConnectionFactory primary, ConnectionFactory replica) {
+        setTargetConnectionFactories(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetConnectionFactory(primary);
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Mono<Object> determineCurrentLookupKey() {
+        return Mono.deferContextual(ctx -> Mono.just(ReadOnlyRouting.isReadOnly(ctx) ? REPLICA : PRIMARY));
+    }
+}
@@ -0,0 +1,20 @@
+package com.kenstudy.transaction_service.exception;
+
+import java.time.Duration;
+
+/**
+ * A request turned away before any work was done. {@link #getRetryAfter()} becomes the
+ * {@code Retry-After} header of the error response.
+ */
+public abstract class AdmissionRejectedException extends RuntimeException {
+    private final Duration retryAfter;
+
+    protected AdmissionRejectedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,12 @@
+package com.kenstudy.transaction_service.exception;
+
+/**
+ * A 5xx from a downstream service. Extends {@link TransactionNotFoundException} so the HTTP mapping
+ * is unchanged, while circuit breakers can count it as a downstream failure.
+ */
+public class DownstreamServerException extends TransactionNotFoundException {
+
+    public DownstreamServerException(String message){
+        super(message);
+    }
+}
@@ -1,5 +1,7 @@
 package com.kenstudy.transaction_service.exception;
 
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import org.springframework.boot.web.error.ErrorAttributeOptions;
 import org.springframework.boot.web.reactive.error.DefaultErrorAttributes;
 import org.springframework.http.HttpStatus;
@@ -11,6 +13,7 @@ import java.util.Map;
 
 @Component
 public class GlobalErrorAttributes extends DefaultErrorAttributes {
+    static final String RETRY_AFTER = "retryAfter";
 
 
     public Map<String, Object> getErrorAttributes(ServerRequest request, ErrorAttributeOptions options) {
@@ -18,15 +21,26 @@ public class GlobalErrorAttributes extends DefaultErrorAttributes {
       Map<String, Object> errorAttributes = new HashMap<>();
         HttpStatus status = HttpStatus.INTERNAL_SERVER_ERROR;
 
-        if (error instanceof TransactionNotFoundException) {
+        if (error instanceof TooManyRequestsException) {
+            status = HttpStatus.TOO_MANY_REQUESTS;
+        } else if (error instanceof ServiceOverloadedException || error instanceof CallNotPermittedException || error instanceof BulkheadFullException) {
+            status = HttpStatus.SERVICE_UNAVAILABLE;
+        } else if (error instanceof VelocityLimitExceededException) {
+            status = HttpStatus.UNPROCESSABLE_ENTITY;
+        } else if (error instanceof TransactionNotFoundException) {
             status = HttpStatus.BAD_REQUEST;
         } else if (error instanceof ResourceNotFoundException) {
             status = HttpStatus.NOT_FOUND;
+        } else if (error instanceof IdempotencyConflictException) {
+            status = HttpStatus.CONFLICT;
         }
         errorAttributes.put("status", status.value());
         errorAttributes.put("error", status.getReasonPhrase());
         errorAttributes.put("message", error.getMessage());
         errorAttributes.put("path", request.path());
+        if (error instanceof AdmissionRejectedException rejected) {
+            errorAttributes.put(RETRY_AFTER, Math.max(1, rejected.getRetryAfter().toSeconds()));
+        }
         return errorAttributes;
     }
 }
@@ -6,6 +6,7 @@ import org.springframework.boot.autoconfigure.web.reactive.error.AbstractErrorWe
 import org.springframework.boot.web.error.ErrorAttributeOptions;
 import org.springframework.boot.web.reactive.error.ErrorAttributes;
 import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.codec.ServerCodecConfigurer;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.*;
@@ -35,14 +36,20 @@ public class GlobalExceptionHandler extends AbstractErrorWebExceptionHandler {
     protected Mono<ServerResponse> renderErrorResponse(ServerRequest request) {
         Map<String, Object> errorPropertiesMap = getErrorAttributes(request, ErrorAttributeOptions.defaults());
 
-        log.error("Exception caught in global handler:::::::::: {}", errorPropertiesMap.get("message"));
+        // shed requests are expected under load; logging each one would add to the overload
+        if (!errorPropertiesMap.containsKey(GlobalErrorAttributes.RETRY_AFTER)) {
+            log.error("Exception caught in global handler:::::::::: {}", errorPropertiesMap.get("message"));
+        }
         ErrorMessageResponse error = ErrorMessageResponse.builder()
                 .status((int) errorPropertiesMap.get("status"))
                 .error((String) errorPropertiesMap.get("error"))
                 .message((String) errorPropertiesMap.get("message"))
                 .path(request.path())
                 .build();
-        return ServerResponse.status(error.getStatus())
-                .bodyValue(error);
+        ServerResponse.BodyBuilder response = ServerResponse.status(error.getStatus());
+        if (errorPropertiesMap.containsKey(GlobalErrorAttributes.RETRY_AFTER)) {
+            response.header(HttpHeaders.RETRY_AFTER, String.valueOf(errorPropertiesMap.get(GlobalErrorAttributes.RETRY_AFTER)));
+        }
+        return response.bodyValue(error);
     }
 }
@@ -0,0 +1,18 @@
+package com.kenstudy.transaction_service.exception;
+
+/**
+ * Tells a final rejection from a failure worth retrying. A failed validation, a 4xx from a downstream
+ * service or a breached velocity limit fails the same way every time; a downstream 5xx
+ * ({@link DownstreamServerException}, or {@link ResourceNotFoundException} from the account service),
+ * a timeout, an open breaker or a full bulkhead may not.
+ */
+public final class Rejections {
+
+    private Rejections() {
+    }
+
+    public static boolean isRejection(Throwable ex) {
+        return ex instanceof VelocityLimitExceededException
+                || ex instanceof TransactionNotFoundException && !(ex instanceof DownstreamServerException);
+    }
+}
@@ -0,0 +1,10 @@
+package com.kenstudy.transaction_service.exception;
+
+import java.time.Duration;
+
+public class ServiceOverloadedException extends AdmissionRejectedException {
+
+    public ServiceOverloadedException(String message, Duration retryAfter) {
+        super(message, retryAfter);
+    }
+}
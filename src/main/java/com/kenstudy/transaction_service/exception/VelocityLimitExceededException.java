@@ -0,0 +1,8 @@
+package com.kenstudy.transaction_service.exception;
+
+public class VelocityLimitExceededException extends RuntimeException {
+
+    public VelocityLimitExceededException(String message){
+        super(message);
+    }
+}
@@ -1,43 +1,146 @@
 package com.kenstudy.transaction_service.handler;
 
 import com.kenstudy.transaction.TransferRequestDTO;
+import com.kenstudy.transaction_service.admission.AdmissionControlFilter;
+import com.kenstudy.transaction_service.exception.TransactionNotFoundException;
+import com.kenstudy.transaction_service.model.BatchTransferResult;
+import com.kenstudy.transaction_service.model.Transaction;
+import com.kenstudy.transaction_service.model.TransactionHistoryQuery;
+import com.kenstudy.transaction_service.service.IdempotencyService;
 import com.kenstudy.transaction_service.service.TransactionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.Map;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
 
 @Component
 public class TransactionHandler {
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     final private TransactionService transactionService;
+    final private IdempotencyService idempotencyService;
 
     @Autowired
-    public TransactionHandler (TransactionService transactionService){
+    public TransactionHandler (TransactionService transactionService, IdempotencyService idempotencyService){
         this.transactionService = transactionService;
+        this.idempotencyService = idempotencyService;
     }
 
         public Mono<ServerResponse> transferFund(ServerRequest serverRequest) {
-            return serverRequest.bodyToMono(TransferRequestDTO.class)
-                    .flatMap(transactionService::transferFund)
+            String idempotencyKey = serverRequest.headers().firstHeader(IDEMPOTENCY_KEY_HEADER);
+            if (idempotencyKey != null && idempotencyKey.regionMatches(true, 0, IdempotencyService.KAFKA_KEY_PREFIX, 0,
+                    IdempotencyService.KAFKA_KEY_PREFIX.length())) {
+                return Mono.error(new TransactionNotFoundException("Idempotency-Key must not start with "
+                        + IdempotencyService.KAFKA_KEY_PREFIX));
+            }
+
+            // the admission filter may already have decoded the body to find the sender account
+            return serverRequest.attribute(AdmissionControlFilter.TRANSFER_REQUEST_ATTRIBUTE)
+                    .map(TransferRequestDTO.class::cast)
+                    .map(Mono::just)
+                    .orElseGet(() -> serverRequest.bodyToMono(TransferRequestDTO.class))
+                    .flatMap(requestDTO -> idempotencyKey == null
+                            ? transactionService.transferFund(requestDTO)
+                            : idempotencyService.execute(idempotencyKey, requestDTO,
+                                    complete -> transactionService.transferFund(requestDTO, complete)))
                     .flatMap(transferResponse ->
                             ServerResponse.status(HttpStatus.CREATED)
-                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .contentType(responseType(serverRequest))
                                     .bodyValue(transferResponse)
                     );
         }
 
-        public Mono<ServerResponse> getTransaction(ServerRequest req){
-            Integer transactId = Integer.parseInt(req.pathVariable("transactId"));
+        @SuppressWarnings("unchecked")
+        public Mono<ServerResponse> transferFundBatch(ServerRequest serverRequest) {
+            // the admission filter may already have decoded the rows to charge each one
+            Flux<TransferRequestDTO> requests = serverRequest.attribute(AdmissionControlFilter.TRANSFER_BATCH_ATTRIBUTE)
+                    .map(rows -> (Flux<TransferRequestDTO>) rows)
+                    .orElseGet(() -> serverRequest.bodyToFlux(TransferRequestDTO.class));
+            Flux<BatchTransferResult> results = transactionService.transferFundBatch(requests);
 
-            return transactionService.getTransaction(transactId)
-                    .flatMap(transaction ->
+            return ServerResponse.status(HttpStatus.OK)
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(results, BatchTransferResult.class);
+        }
+
+        public Mono<ServerResponse> getTransactionHistory(ServerRequest req) {
+            return Mono.fromCallable(() -> toHistoryQuery(req))
+                    .flatMap(transactionService::getTransactionHistory)
+                    .flatMap(page ->
                             ServerResponse.status(HttpStatus.OK)
                                     .contentType(MediaType.APPLICATION_JSON)
-                                    .bodyValue(transaction));
+                                    .bodyValue(page));
+        }
+
+        // rows are written as R2DBC produces them; slow clients back-pressure the query instead of buffering
+        public Mono<ServerResponse> streamTransactionHistory(ServerRequest req) {
+            return Mono.fromCallable(() -> toHistoryQuery(req))
+                    .flatMap(query -> ServerResponse.status(HttpStatus.OK)
+                            .contentType(MediaType.APPLICATION_NDJSON)
+                            .body(transactionService.streamTransactionHistory(query), Transaction.class));
+        }
+
+        public Mono<ServerResponse> getTransaction(ServerRequest req){
+            Integer transactId = Integer.parseInt(req.pathVariable("transactId"));
+
+            // a matching If-None-Match is answered from the cached snapshot; the body is sent as pre-serialized bytes
+            MediaType responseType = responseType(req);
+            // set on the exchange so the 304 from checkNotModified carries it as well as the 200
+            req.exchange().getResponse().getHeaders().set(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            return transactionService.getTransactionSnapshot(transactId)
+                    .flatMap(snapshot -> {
+                        boolean json = MediaType.APPLICATION_JSON.equals(responseType);
+                        String etag = json ? snapshot.getEtag() : snapshot.getEtag().replaceFirst("\"$", "-cbor\"");
+                        return req.checkNotModified(etag)
+                                .orElseGet(() -> ServerResponse.status(HttpStatus.OK)
+                                        .contentType(responseType)
+                                        .eTag(etag)
+                                        .bodyValue(json ? snapshot.getJson() : snapshot.getTransaction()));
+                    });
+        }
+
+        // CBOR only when the client prefers it to JSON by q-value and specificity (or lists no JSON); JSON stays the default
+        static MediaType responseType(ServerRequest req) {
+            List<MediaType> acceptable = new ArrayList<>(req.headers().accept());
+            MimeTypeUtils.sortBySpecificity(acceptable);
+            for (MediaType accepted : acceptable) {
+                if (accepted.getQualityValue() == 0) {
+                    continue;
+                }
+                if (MediaType.APPLICATION_CBOR.equalsTypeAndSubtype(accepted)) {
+                    return MediaType.APPLICATION_CBOR;
+                }
+                if (accepted.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                    return MediaType.APPLICATION_JSON;
+                }
+            }
+            return MediaType.APPLICATION_JSON;
+        }
+
+        private TransactionHistoryQuery toHistoryQuery(ServerRequest req) {
+            try {
+                return TransactionHistoryQuery.builder()
+                        .accountId(req.queryParam("accountId").map(Integer::valueOf).orElse(null))
+                        .recipientId(req.queryParam("recipientId").map(Integer::valueOf).orElse(null))
+                        .fromDate(req.queryParam("from").map(LocalDate::parse).orElse(null))
+                        .toDate(req.queryParam("to").map(LocalDate::parse).orElse(null))
+                        .status(req.queryParam("status").orElse(null))
+                        .cursor(req.queryParam("cursor").orElse(null))
+                        .limit(req.queryParam("limit").map(Integer::parseInt).orElse(0))
+                        .build();
+            } catch (NumberFormatException | DateTimeParseException ex) {
+                throw new TransactionNotFoundException("Invalid history query: " + ex.getMessage());
+            }
         }
 }
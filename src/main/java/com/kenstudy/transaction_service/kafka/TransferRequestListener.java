@@ -0,0 +1,145 @@
+package com.kenstudy.transaction_service.kafka;
+
+import com.kenstudy.transaction.TransferRequestDTO;
+import com.kenstudy.transaction_service.exception.IdempotencyConflictException;
+import com.kenstudy.transaction_service.exception.Rejections;
+import com.kenstudy.transaction_service.model.BatchTransferResult;
+import com.kenstudy.transaction_service.service.IdempotencyService;
+import com.kenstudy.transaction_service.service.TransactionService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consumes transfer commands in batches. Records sharing a partition key (the sender accountId) are
+ * processed one after another in offset order, different keys run concurrently. The listener only
+ * returns once every row is persisted and every outcome is published, so the container's BATCH ack
+ * mode commits offsets strictly after the writes.
+ * <p>
+ * A retryable failure makes the container commit the batch only up to that record and redeliver the
+ * rest, including records of other accounts that already succeeded; a batch timeout redelivers all of
+ * it. Each record therefore runs through {@link IdempotencyService} keyed by its topic, partition and
+ * offset, so a redelivered record replays its stored outcome instead of transferring again. Those keys
+ * carry {@link IdempotencyService#KAFKA_KEY_PREFIX}, which HTTP clients may not use.
+ */
+@Slf4j
+@Component
+public class TransferRequestListener {
+    private final TransactionService transactionService;
+    private final IdempotencyService idempotencyService;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final String resultsTopic;
+    private final int concurrency;
+    private final Duration batchTimeout;
+
+    @Autowired
+    public TransferRequestListener(TransactionService transactionService, IdempotencyService idempotencyService,
+                                   KafkaTemplate<String, Object> kafkaTemplate,
+                                   @Value("${transaction.kafka.results-topic:transfer-results}") String resultsTopic,
+                                   @Value("${transaction.kafka.concurrency:16}") int concurrency,
+                                   @Value("${transaction.kafka.batch-timeout:30s}") Duration batchTimeout) {
+        this.transactionService = transactionService;
+        this.idempotencyService = idempotencyService;
+        this.kafkaTemplate = kafkaTemplate;
+        this.resultsTopic = resultsTopic;
+        this.concurrency = concurrency;
+        this.batchTimeout = batchTimeout;
+    }
+
+    @KafkaListener(id = "transfer-requests",
+            topics = "${transaction.kafka.requests-topic:transfer-requests}",
+            autoStartup = "${transaction.kafka.enabled:false}",
+            batch = "true")
+    public void onTransferRequests(List<ConsumerRecord<String, TransferRequestDTO>> records) {
+        Map<String, List<ConsumerRecord<String, TransferRequestDTO>>> byKey = new LinkedHashMap<>();
+        for (ConsumerRecord<String, TransferRequestDTO> rec : records) {
+            byKey.computeIfAbsent(partitionKey(rec), key -> new ArrayList<>()).add(rec);
+        }
+
+        List<RecordOutcome> outcomes = Flux.fromIterable(byKey.values())
+                .flatMap(group -> Flux.fromIterable(group).concatMap(this::process), concurrency)
+                .collectList()
+                .block(batchTimeout);
+
+        // anything that is not a business rejection is retried from the first such record onwards
+        Map<ConsumerRecord<String, TransferRequestDTO>, Throwable> failures = new IdentityHashMap<>();
+        outcomes.stream()
+                .filter(outcome -> outcome.retryable() != null)
+                .forEach(outcome -> failures.put(outcome.rec(), outcome.retryable()));
+        for (ConsumerRecord<String, TransferRequestDTO> rec : records) {
+            if (failures.containsKey(rec)) {
+                throw new BatchListenerFailedException("Transfer record could not be persisted", failures.get(rec), rec);
+            }
+        }
+        log.info("Processed {} transfer records across {} accounts", records.size(), byKey.size());
+    }
+
+    private Mono<RecordOutcome> process(ConsumerRecord<String, TransferRequestDTO> rec) {
+        if (rec.value() == null) {
+            return publish(rec, failure(rec, "Transfer record could not be deserialized"))
+                    .thenReturn(new RecordOutcome(rec, null));
+        }
+        return idempotencyService.execute(recordKey(rec), rec.value(),
+                        complete -> transactionService.transferFund(rec.value(), complete))
+                .map(response -> BatchTransferResult.builder()
+                        .index(rec.offset())
+                        .accountId(response.getAccountId())
+                        .recipientId(response.getRecipientId())
+                        .outcome(BatchTransferResult.SUCCESS)
+                        .transaction(response)
+                        .build())
+                .flatMap(result -> publish(rec, result).thenReturn(new RecordOutcome(rec, null)))
+                .onErrorResume(this::isRejection, ex -> publish(rec, failure(rec, ex.getMessage()))
+                        .thenReturn(new RecordOutcome(rec, null)))
+                .onErrorResume(ex -> Mono.just(new RecordOutcome(rec, ex)));
+    }
+
+    private Mono<Void> publish(ConsumerRecord<String, TransferRequestDTO> rec, BatchTransferResult result) {
+        return Mono.fromFuture(() -> kafkaTemplate.send(resultsTopic, rec.key(), result)).then();
+    }
+
+    // a final rejection is published as FAILED; anything else is redelivered (see Rejections). An idempotency
+    // conflict is final too: the key belongs to this record's offset, so a redelivery would only hit it again
+    private boolean isRejection(Throwable ex) {
+        return Rejections.isRejection(ex) || ex instanceof IdempotencyConflictException;
+    }
+
+    private static BatchTransferResult failure(ConsumerRecord<String, TransferRequestDTO> rec, String error) {
+        TransferRequestDTO req = rec.value();
+        return BatchTransferResult.builder()
+                .index(rec.offset())
+                .accountId(req == null ? null : req.getAccountId())
+                .recipientId(req == null ? null : req.getRecipientId())
+                .outcome(BatchTransferResult.FAILED)
+                .error(error)
+                .build();
+    }
+
+    private static String recordKey(ConsumerRecord<String, TransferRequestDTO> rec) {
+        return IdempotencyService.KAFKA_KEY_PREFIX + rec.topic() + ":" + rec.partition() + ":" + rec.offset();
+    }
+
+    private static String partitionKey(ConsumerRecord<String, TransferRequestDTO> rec) {
+        if (rec.key() != null) {
+            return rec.key();
+        }
+        return rec.value() == null ? "partition-" + rec.partition() : String.valueOf(rec.value().getAccountId());
+    }
+
+    private record RecordOutcome(ConsumerRecord<String, TransferRequestDTO> rec, Throwable retryable) {
+    }
+}
@@ -0,0 +1,23 @@
+package com.kenstudy.transaction_service.model;
+
+import com.kenstudy.transaction.TransactionResponseDTO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class BatchTransferResult {
+    public static final String SUCCESS = "SUCCESS";
+    public static final String FAILED = "FAILED";
+
+    private long index;
+    private Integer accountId;
+    private Integer recipientId;
+    private String outcome;
+    private TransactionResponseDTO transaction;
+    private String error;
+}
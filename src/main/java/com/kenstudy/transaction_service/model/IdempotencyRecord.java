@@ -0,0 +1,29 @@
+package com.kenstudy.transaction_service.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Table(name = "idempotency_key")
+public class IdempotencyRecord {
+    public static final String IN_PROGRESS = "IN_PROGRESS";
+    public static final String COMPLETED = "COMPLETED";
+
+    @Id
+    @Column("idem_key")
+    private String key;
+    private String requestHash;
+    private String status;
+    private String response;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+}
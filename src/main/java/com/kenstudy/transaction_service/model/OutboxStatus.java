@@ -0,0 +1,8 @@
+package com.kenstudy.transaction_service.model;
+
+public enum OutboxStatus {
+    PENDING,
+    IN_FLIGHT,
+    DELIVERED,
+    FAILED
+}
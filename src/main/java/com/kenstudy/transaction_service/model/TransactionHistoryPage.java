@@ -0,0 +1,17 @@
+package com.kenstudy.transaction_service.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class TransactionHistoryPage {
+    private List<Transaction> items;
+    private String nextCursor;
+}
@@ -0,0 +1,22 @@
+package com.kenstudy.transaction_service.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class TransactionHistoryQuery {
+    private Integer accountId;
+    private Integer recipientId;
+    private LocalDate fromDate;
+    private LocalDate toDate;
+    private String status;
+    private String cursor;
+    private int limit;
+}
@@ -0,0 +1,28 @@
+package com.kenstudy.transaction_service.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Table(name = "transaction_outbox")
+public class TransactionOutbox {
+    @Id
+    private Long id;
+    private Integer transactionId;
+    private String payload;
+    private String status;
+    private Integer attempts;
+    private LocalDateTime nextAttemptAt;
+    private String claimToken;
+    private LocalDateTime claimedAt;
+    private String lastError;
+    private LocalDateTime createdAt;
+
+}
@@ -0,0 +1,21 @@
+package com.kenstudy.transaction_service.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A transaction as served by {@code GET /v1/transaction/{transactId}}: the entity, its JSON body
+ * serialized once, and the ETag that identifies that body.
+ */
+@Getter
+@AllArgsConstructor
+public class TransactionSnapshot {
+    private final Transaction transaction;
+    private final byte[] json;
+    private final String etag;
+
+    public boolean isTerminal() {
+        String status = transaction.getTransactionStatus();
+        return TransactionState.COMPLETED.status().equals(status) || TransactionState.FAILED.status().equals(status);
+    }
+}
@@ -0,0 +1,50 @@
+package com.kenstudy.transaction_service.model;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Lifecycle of a transaction row: CREATED when the transfer is accepted, PENDING once the outbox
+ * relay starts delivering the payment, then COMPLETED or FAILED. {@link #status()} is the value
+ * stored in {@code transact_status}.
+ */
+public enum TransactionState {
+    CREATED("TRANSACTION_CREATED"),
+    PENDING("TRANSACTION_PENDING"),
+    COMPLETED("TRANSACTION_COMPLETED"),
+    FAILED("TRANSACTION_FAILED");
+
+    private final String status;
+
+    TransactionState(String status) {
+        this.status = status;
+    }
+
+    public String status() {
+        return status;
+    }
+
+    public boolean isTerminal() {
+        return this == COMPLETED || this == FAILED;
+    }
+
+    public boolean canTransitionTo(TransactionState next) {
+        return allowedNext().contains(next);
+    }
+
+    public static TransactionState fromStatus(String status) {
+        return Arrays.stream(values())
+                .filter(state -> state.status.equals(status))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown transaction status " + status));
+    }
+
+    private Set<TransactionState> allowedNext() {
+        return switch (this) {
+            case CREATED -> EnumSet.of(PENDING);
+            case PENDING -> EnumSet.of(COMPLETED, FAILED);
+            case COMPLETED, FAILED -> EnumSet.noneOf(TransactionState.class);
+        };
+    }
+}
@@ -0,0 +1,48 @@
+package com.kenstudy.transaction_service.repository;
+
+import com.kenstudy.transaction_service.model.IdempotencyRecord;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyRecordRepository extends ReactiveCrudRepository<IdempotencyRecord, String> {
+
+    /**
+     * Claims the key; fails with a DataIntegrityViolationException when another request already holds it.
+     */
+    @Modifying
+    @Query("INSERT INTO idempotency_key (idem_key, request_hash, status, created_at, updated_at) "
+            + "VALUES (:key, :requestHash, 'IN_PROGRESS', :now, :now)")
+    Mono<Integer> claim(String key, String requestHash, LocalDateTime now);
+
+    /**
+     * Stores the response, but only while the claim made at {@code claimedAt} still holds the key: a claim
+     * released as stale and taken by a retry belongs to that retry.
+     */
+    @Modifying
+    @Query("UPDATE idempotency_key SET status = 'COMPLETED', response = :response, updated_at = :now "
+            + "WHERE idem_key = :key AND status = 'IN_PROGRESS' AND created_at = :claimedAt")
+    Mono<Integer> complete(String key, LocalDateTime claimedAt, String response, LocalDateTime now);
+
+    /**
+     * Gives up the claim made at {@code claimedAt} after a failed transfer; a completed key is kept.
+     */
+    @Modifying
+    @Query("DELETE FROM idempotency_key WHERE idem_key = :key AND status = 'IN_PROGRESS' AND created_at = :claimedAt")
+    Mono<Integer> release(String key, LocalDateTime claimedAt);
+
+    @Modifying
+    @Query("DELETE FROM idempotency_key WHERE idem_key = :key AND status = 'IN_PROGRESS' AND updated_at < :staleBefore")
+    Mono<Integer> releaseStale(String key, LocalDateTime staleBefore);
+
+    /**
+     * Deletes up to {@code limit} keys last written before {@code before}: completed keys past their
+     * retention and claims abandoned by a transfer that never committed.
+     */
+    @Modifying
+    @Query("DELETE FROM idempotency_key WHERE updated_at < :before LIMIT :limit")
+    Mono<Integer> purgeExpired(LocalDateTime before, int limit);
+}
@@ -0,0 +1,17 @@
+package com.kenstudy.transaction_service.repository;
+
+import com.kenstudy.transaction_service.model.Transaction;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+public interface TransactionBatchRepository {
+
+    /**
+     * Inserts all rows through one prepared statement with a binding per row and returns them with their
+     * generated ids, in the same order as the input list. The driver still executes one single-row INSERT
+     * per binding; what is saved is the per-row statement preparation and repository call, not per-row
+     * execution.
+     */
+    Flux<Transaction> insertAll(List<Transaction> transactions);
+}
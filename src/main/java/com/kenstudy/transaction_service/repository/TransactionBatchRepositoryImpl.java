@@ -0,0 +1,73 @@
+package com.kenstudy.transaction_service.repository;
+
+import com.kenstudy.transaction_service.model.Transaction;
+import io.r2dbc.spi.Statement;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.binding.BindMarkers;
+import org.springframework.r2dbc.core.binding.BindMarkersFactoryResolver;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class TransactionBatchRepositoryImpl implements TransactionBatchRepository {
+    private static final String[] INSERT_COLUMNS = {"account_id", "recipient_id", "description", "amount",
+            "transact_type", "transact_status", "created_date"};
+
+    private final DatabaseClient databaseClient;
+    private final String insertSql;
+
+    public TransactionBatchRepositoryImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+        this.insertSql = buildInsertSql(BindMarkersFactoryResolver.resolve(databaseClient.getConnectionFactory()).create());
+    }
+
+    @Override
+    public Flux<Transaction> insertAll(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return Flux.empty();
+        }
+        return databaseClient.inConnectionMany(connection -> {
+            Statement statement = connection.createStatement(insertSql).returnGeneratedValues("id");
+            for (int i = 0; i < transactions.size(); i++) {
+                if (i > 0) {
+                    statement.add();
+                }
+                bindRow(statement, transactions.get(i));
+            }
+            // one Result per binding, in binding order
+            return Flux.from(statement.execute())
+                    .concatMap(result -> result.map((row, meta) -> ((Number) row.get(0)).intValue()))
+                    .zipWithIterable(transactions, (id, transaction) -> {
+                        transaction.setId(id);
+                        return transaction;
+                    });
+        });
+    }
+
+    private static void bindRow(Statement statement, Transaction trans) {
+        bind(statement, 0, trans.getAccountId(), Integer.class);
+        bind(statement, 1, trans.getRecipientId(), Integer.class);
+        bind(statement, 2, trans.getDescription(), String.class);
+        bind(statement, 3, trans.getAmount(), Double.class);
+        bind(statement, 4, trans.getTransactType(), String.class);
+        bind(statement, 5, trans.getTransactionStatus(), String.class);
+        bind(statement, 6, trans.getCreatedDate(), LocalDate.class);
+    }
+
+    private static void bind(Statement statement, int index, Object value, Class<?> type) {
+        if (value == null) {
+            statement.bindNull(index, type);
+        } else {
+            statement.bind(index, value);
+        }
+    }
+
+    private static String buildInsertSql(BindMarkers markers) {
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < INSERT_COLUMNS.length; i++) {
+            values.append(i == 0 ? "" : ", ").append(markers.next().getPlaceholder());
+        }
+        return "INSERT INTO transaction (" + String.join(", ", INSERT_COLUMNS) + ") VALUES (" + values + ")";
+    }
+}
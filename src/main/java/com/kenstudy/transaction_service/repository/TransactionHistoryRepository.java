@@ -0,0 +1,14 @@
+package com.kenstudy.transaction_service.repository;
+
+import com.kenstudy.transaction_service.model.Transaction;
+import com.kenstudy.transaction_service.model.TransactionHistoryQuery;
+import reactor.core.publisher.Flux;
+
+public interface TransactionHistoryRepository {
+
+    /**
+     * Rows matching the query, newest first ({@code created_date DESC, id DESC}), starting after the
+     * query's cursor. A limit of zero or less streams every remaining row.
+     */
+    Flux<Transaction> findHistory(TransactionHistoryQuery query);
+}
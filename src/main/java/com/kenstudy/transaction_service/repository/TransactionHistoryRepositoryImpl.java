@@ -0,0 +1,72 @@
+package com.kenstudy.transaction_service.repository;
+
+import com.kenstudy.transaction_service.exception.TransactionNotFoundException;
+import com.kenstudy.transaction_service.model.Transaction;
+import com.kenstudy.transaction_service.model.TransactionHistoryQuery;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+public class TransactionHistoryRepositoryImpl implements TransactionHistoryRepository {
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdDate"), Sort.Order.desc("id"));
+
+    private final R2dbcEntityTemplate template;
+
+    public TransactionHistoryRepositoryImpl(R2dbcEntityTemplate template) {
+        this.template = template;
+    }
+
+    @Override
+    public Flux<Transaction> findHistory(TransactionHistoryQuery query) {
+        Criteria criteria = Criteria.empty();
+        if (query.getAccountId() != null) {
+            criteria = criteria.and("accountId").is(query.getAccountId());
+        }
+        if (query.getRecipientId() != null) {
+            criteria = criteria.and("recipientId").is(query.getRecipientId());
+        }
+        if (query.getFromDate() != null) {
+            criteria = criteria.and("createdDate").greaterThanOrEquals(query.getFromDate());
+        }
+        if (query.getToDate() != null) {
+            criteria = criteria.and("createdDate").lessThanOrEquals(query.getToDate());
+        }
+        if (query.getStatus() != null) {
+            criteria = criteria.and("transactionStatus").is(query.getStatus());
+        }
+        if (query.getCursor() != null) {
+            Cursor cursor = Cursor.decode(query.getCursor());
+            // keyset: strictly after the last row of the previous page in (created_date, id) order
+            criteria = criteria.and(Criteria.where("createdDate").lessThan(cursor.createdDate())
+                    .or(Criteria.where("createdDate").is(cursor.createdDate()).and("id").lessThan(cursor.id())));
+        }
+
+        Query select = Query.query(criteria).sort(NEWEST_FIRST);
+        if (query.getLimit() > 0) {
+            select = select.limit(query.getLimit());
+        }
+        return template.select(select, Transaction.class);
+    }
+
+    public static String encodeCursor(Transaction last) {
+        String raw = last.getCreatedDate() + ":" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private record Cursor(LocalDate createdDate, Integer id) {
+        static Cursor decode(String cursor) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+                return new Cursor(LocalDate.parse(parts[0]), Integer.valueOf(parts[1]));
+            } catch (RuntimeException ex) {
+                throw new TransactionNotFoundException("Invalid history cursor: " + cursor);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.kenstudy.transaction_service.repository;
+
+import com.kenstudy.transaction_service.model.TransactionOutbox;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+public interface TransactionOutboxRepository extends ReactiveCrudRepository<TransactionOutbox, Long> {
+
+    /**
+     * Marks up to {@code limit} due PENDING rows as IN_FLIGHT under {@code token}, so that concurrent
+     * relays (other pods) never pick up the same row.
+     */
+    @Modifying
+    @Query("UPDATE transaction_outbox SET status = 'IN_FLIGHT', claim_token = :token, claimed_at = :now "
+            + "WHERE id IN (SELECT id FROM (SELECT id FROM transaction_outbox "
+            + "WHERE status = 'PENDING' AND next_attempt_at <= :now ORDER BY id LIMIT :limit) AS due) "
+            + "AND status = 'PENDING'")
+    Mono<Integer> claimDue(String token, LocalDateTime now, int limit);
+
+    Flux<TransactionOutbox> findByClaimToken(String claimToken);
+
+    /**
+     * Writes the outcome of one delivery, but only while {@code token} still holds the claim. Returns 0
+     * when the row was released and claimed again in the meantime, so a late relay cannot overwrite
+     * the state a newer claim is working on.
+     */
+    @Modifying
+    @Query("UPDATE transaction_outbox SET status = :status, attempts = :attempts, next_attempt_at = :nextAttemptAt, "
+            + "last_error = :lastError, claim_token = NULL WHERE id = :id AND claim_token = :token")
+    Mono<Integer> recordOutcome(Long id, String token, String status, int attempts, LocalDateTime nextAttemptAt,
+                                String lastError);
+
+    /**
+     * Puts rows claimed by a relay that died mid-delivery back to PENDING.
+     */
+    @Modifying
+    @Query("UPDATE transaction_outbox SET status = 'PENDING', claim_token = NULL "
+            + "WHERE status = 'IN_FLIGHT' AND claimed_at < :claimedBefore")
+    Mono<Integer> releaseStaleClaims(LocalDateTime claimedBefore);
+
+    /**
+     * Deletes up to {@code limit} DELIVERED or FAILED rows created before {@code before}.
+     */
+    @Modifying
+    @Query("DELETE FROM transaction_outbox WHERE status IN ('DELIVERED', 'FAILED') AND created_at < :before LIMIT :limit")
+    Mono<Integer> purgeFinished(LocalDateTime before, int limit);
+}
@@ -0,0 +1,15 @@
+package com.kenstudy.transaction_service.repository;
+
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+public interface TransactionStatusRepository {
+
+    /**
+     * Moves every row in {@code ids} that is still in {@code from} to {@code to}, touching only the
+     * status and date columns. Returns how many rows changed; rows in any other state are left alone.
+     */
+    Mono<Integer> compareAndSetStatus(Collection<Integer> ids, String from, String to, LocalDate date);
+}
@@ -0,0 +1,31 @@
+package com.kenstudy.transaction_service.repository;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+public class TransactionStatusRepositoryImpl implements TransactionStatusRepository {
+    private final DatabaseClient databaseClient;
+
+    public TransactionStatusRepositoryImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Mono<Integer> compareAndSetStatus(Collection<Integer> ids, String from, String to, LocalDate date) {
+        if (ids.isEmpty()) {
+            return Mono.just(0);
+        }
+        return databaseClient.sql("UPDATE transaction SET transact_status = :to, created_date = :date "
+                        + "WHERE id IN (:ids) AND transact_status = :from")
+                .bind("to", to)
+                .bind("date", date)
+                .bind("ids", ids)
+                .bind("from", from)
+                .fetch()
+                .rowsUpdated()
+                .map(Long::intValue);
+    }
+}
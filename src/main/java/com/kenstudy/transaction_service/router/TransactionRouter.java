@@ -1,9 +1,12 @@
 package com.kenstudy.transaction_service.router;
 
+import com.kenstudy.transaction_service.admission.AdmissionControlFilter;
 import com.kenstudy.transaction_service.handler.TransactionHandler;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RequestPredicate;
 import org.springframework.web.reactive.function.server.RequestPredicates;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.RouterFunctions;
@@ -12,16 +15,40 @@ import org.springframework.web.reactive.function.server.ServerResponse;
 @Configuration
 public class TransactionRouter {
     @Bean
-    public RouterFunction<ServerResponse> route(TransactionHandler transHandler) {
+    public RouterFunction<ServerResponse> route(TransactionHandler transHandler,
+                                                @Qualifier("transferAdmissionFilter") AdmissionControlFilter transferAdmission,
+                                                @Qualifier("batchAdmissionFilter") AdmissionControlFilter batchAdmission,
+                                                @Qualifier("readAdmissionFilter") AdmissionControlFilter readAdmission) {
         return RouterFunctions.route()
                 .path("/v1/transaction", builder -> builder
-                        .POST("/fund-transfer",
-                                RequestPredicates.contentType(MediaType.APPLICATION_JSON),
-                                transHandler::transferFund)
-                        .GET("/{transactId}",
-                                RequestPredicates.accept(MediaType.APPLICATION_JSON),
-                                transHandler::getTransaction)
+                        .add(RouterFunctions.route()
+                                .POST("/fund-transfer",
+                                        RequestPredicates.contentType(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR),
+                                        transHandler::transferFund)
+                                .filter(transferAdmission)
+                                .build())
+                        .add(RouterFunctions.route()
+                                .POST("/fund-transfer/batch",
+                                        RequestPredicates.contentType(MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON),
+                                        transHandler::transferFundBatch)
+                                .filter(batchAdmission)
+                                .build())
+                        .add(RouterFunctions.route()
+                                .GET("/history", acceptsExplicitly(MediaType.APPLICATION_NDJSON),
+                                        transHandler::streamTransactionHistory)
+                                .GET("/history", transHandler::getTransactionHistory)
+                                .GET("/{transactId}",
+                                        RequestPredicates.accept(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR),
+                                        transHandler::getTransaction)
+                                .filter(readAdmission)
+                                .build())
                 )
                 .build();
     }
+
+    // unlike RequestPredicates.accept, a missing Accept header or */* does not match: those get the paged JSON
+    private static RequestPredicate acceptsExplicitly(MediaType mediaType) {
+        return RequestPredicates.headers(headers -> headers.accept().stream()
+                .anyMatch(accepted -> mediaType.equalsTypeAndSubtype(accepted) && accepted.getQualityValue() > 0));
+    }
 }
@@ -0,0 +1,23 @@
+package com.kenstudy.transaction_service.service;
+
+import com.kenstudy.transaction.TransactionResponseDTO;
+import com.kenstudy.transaction.TransferRequestDTO;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+public interface IdempotencyService {
+    /**
+     * Prefix of the keys the service derives for Kafka records. Client keys are stored as sent, so a
+     * client key starting with it (in any case: the key column compares case-insensitively) is refused.
+     */
+    String KAFKA_KEY_PREFIX = "kafka:";
+
+    /**
+     * Runs {@code transfer} at most once per key. The transfer is handed a completion that stores the
+     * response under the key; it must run that completion inside the transaction that writes the
+     * transfer, so the key is never left claimed for a transfer that already committed.
+     */
+    Mono<TransactionResponseDTO> execute(String idempotencyKey, TransferRequestDTO requestDTO,
+                                         Function<Function<TransactionResponseDTO, Mono<Void>>, Mono<TransactionResponseDTO>> transfer);
+}
@@ -2,10 +2,23 @@ package com.kenstudy.transaction_service.service;
 
 import com.kenstudy.transaction.TransactionResponseDTO;
 import com.kenstudy.transaction.TransferRequestDTO;
+import com.kenstudy.transaction_service.model.BatchTransferResult;
 import com.kenstudy.transaction_service.model.Transaction;
+import com.kenstudy.transaction_service.model.TransactionHistoryPage;
+import com.kenstudy.transaction_service.model.TransactionHistoryQuery;
+import com.kenstudy.transaction_service.model.TransactionSnapshot;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.function.Function;
+
 public interface TransactionService {
     Mono<TransactionResponseDTO> transferFund(TransferRequestDTO requestDTO);
+    // runs inTransaction with the response before the transfer's rows commit, as part of the same transaction
+    Mono<TransactionResponseDTO> transferFund(TransferRequestDTO requestDTO, Function<TransactionResponseDTO, Mono<Void>> inTransaction);
+    Flux<BatchTransferResult> transferFundBatch(Flux<TransferRequestDTO> requests);
     Mono<Transaction>getTransaction(Integer transactId);
+    Mono<TransactionSnapshot> getTransactionSnapshot(Integer transactId);
+    Mono<TransactionHistoryPage> getTransactionHistory(TransactionHistoryQuery query);
+    Flux<Transaction> streamTransactionHistory(TransactionHistoryQuery query);
 }
@@ -0,0 +1,149 @@
+package com.kenstudy.transaction_service.service.customImpl;
+
+import com.kenstudy.transaction_service.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs work for one sender account strictly one after another, in arrival order, without blocking a
+ * thread: the next queued task is subscribed when the previous one terminates. Each account gets a
+ * lane only while it has work; lane state is changed inside {@link ConcurrentHashMap#compute}, whose
+ * per-bin locking keeps different accounts independent. A lane holds at most {@code max-queue-depth}
+ * waiting tasks; beyond that callers are rejected at once with a 429.
+ */
+@Component
+public class AccountSequencer {
+    private final ConcurrentHashMap<Integer, Lane> lanes = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final boolean enabled;
+    private final int maxQueueDepth;
+    private final Timer queueWait;
+    private final Counter rejected;
+
+    @Autowired
+    public AccountSequencer(MeterRegistry meterRegistry,
+                            @Value("${transaction.sequencer.enabled:true}") boolean enabled,
+                            @Value("${transaction.sequencer.max-queue-depth:16}") int maxQueueDepth) {
+        this.enabled = enabled;
+        this.maxQueueDepth = maxQueueDepth;
+        Gauge.builder("transaction.sequencer.queued", queued, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("transaction.sequencer.active-accounts", lanes, ConcurrentHashMap::size).register(meterRegistry);
+        this.queueWait = Timer.builder("transaction.sequencer.wait").register(meterRegistry);
+        this.rejected = Counter.builder("transaction.sequencer.rejected").register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code work} once every earlier task for {@code accountId} has finished. Cancelling the
+     * returned Mono skips the task if it has not started; a running task is left to complete.
+     */
+    public <T> Mono<T> submit(Integer accountId, Supplier<Mono<T>> work) {
+        if (!enabled || accountId == null) {
+            return Mono.defer(work);
+        }
+        return Mono.defer(() -> {
+            Task<T> task = new Task<>(work, System.nanoTime());
+            Admission admission = enqueue(accountId, task);
+            if (admission == Admission.REJECTED) {
+                rejected.increment();
+                return Mono.error(new TooManyRequestsException(
+                        "Too many transfers queued for account " + accountId, Duration.ofSeconds(1)));
+            }
+            if (admission == Admission.RUN_NOW) {
+                run(accountId, task);
+            }
+            return task.result.asMono().doOnCancel(() -> task.cancelled = true);
+        });
+    }
+
+    public int queued() {
+        return queued.get();
+    }
+
+    private Admission enqueue(Integer accountId, Task<?> task) {
+        Admission[] admission = new Admission[1];
+        lanes.compute(accountId, (id, lane) -> {
+            Lane current = lane == null ? new Lane() : lane;
+            if (!current.running) {
+                current.running = true;
+                admission[0] = Admission.RUN_NOW;
+            } else if (current.waiting.size() >= maxQueueDepth) {
+                admission[0] = Admission.REJECTED;
+            } else {
+                current.waiting.add(task);
+                queued.incrementAndGet();
+                admission[0] = Admission.QUEUED;
+            }
+            return current;
+        });
+        return admission[0];
+    }
+
+    private <T> void run(Integer accountId, Task<T> task) {
+        if (task.cancelled) {
+            runNext(accountId);
+            return;
+        }
+        queueWait.record(System.nanoTime() - task.enqueuedAt, TimeUnit.NANOSECONDS);
+        Mono.defer(task.work).subscribe(
+                task.result::tryEmitValue,
+                ex -> {
+                    task.result.tryEmitError(ex);
+                    runNext(accountId);
+                },
+                () -> {
+                    task.result.tryEmitEmpty();
+                    runNext(accountId);
+                });
+    }
+
+    private void runNext(Integer accountId) {
+        Task<?>[] next = new Task<?>[1];
+        lanes.compute(accountId, (id, lane) -> {
+            next[0] = lane.waiting.poll();
+            if (next[0] == null) {
+                return null; // drained: drop the lane so idle accounts cost nothing
+            }
+            queued.decrementAndGet();
+            return lane;
+        });
+        if (next[0] != null) {
+            run(accountId, next[0]);
+        }
+    }
+
+    private enum Admission {
+        RUN_NOW, QUEUED, REJECTED
+    }
+
+    private static final class Lane {
+        private final Queue<Task<?>> waiting = new ArrayDeque<>();
+        private boolean running;
+    }
+
+    private static final class Task<T> {
+        private final Supplier<Mono<T>> work;
+        private final long enqueuedAt;
+        private final Sinks.One<T> result = Sinks.one();
+        private volatile boolean cancelled;
+
+        private Task(Supplier<Mono<T>> work, long enqueuedAt) {
+            this.work = work;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
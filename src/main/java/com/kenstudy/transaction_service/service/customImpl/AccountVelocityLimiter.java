@@ -0,0 +1,256 @@
+package com.kenstudy.transaction_service.service.customImpl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kenstudy.transaction_service.exception.ServiceOverloadedException;
+import com.kenstudy.transaction_service.exception.VelocityLimitExceededException;
+import com.kenstudy.transaction_service.model.TransactionState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * Per-account hourly and daily amount/count limits held in memory. Each account owns a {@link Window}
+ * of 60 one-minute buckets and 24 one-hour buckets; a reservation checks the limits and adds to the
+ * buckets under that window's lock, so concurrent transfers for one account can never jointly exceed a
+ * limit, different accounts never contend and nothing is allocated per reservation.
+ * <p>
+ * Off unless {@code transaction.limits.enabled} is set. When on, the windows start empty and are
+ * restored from the database before the application reports ready; until then every reservation fails
+ * with a {@link ServiceOverloadedException}, so nothing is admitted against counters that are missing
+ * the last day's transfers.
+ */
+@Slf4j
+@Component
+public class AccountVelocityLimiter {
+    private static final int MINUTES = 60;
+    private static final int HOURS = 24;
+    // how far back rebuild() reads the outbox; the outbox must keep its rows longer than this
+    static final Duration REBUILD_WINDOW = Duration.ofHours(HOURS);
+    private static final Duration RESTORING_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final DatabaseClient databaseClient;
+    private final Clock clock;
+    private final boolean enabled;
+    private final long hourlyAmountCents;
+    private final int hourlyCount;
+    private final long dailyAmountCents;
+    private final int dailyCount;
+    private final Duration rebuildTimeout;
+    // instances built without a database (tests, benchmarks) have nothing to restore
+    private volatile boolean restored = true;
+    private final Cache<Integer, Window> windows = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofHours(HOURS + 1))
+            .build();
+
+    @Autowired
+    public AccountVelocityLimiter(DatabaseClient databaseClient,
+                                  @Value("${transaction.limits.enabled:false}") boolean enabled,
+                                  @Value("${transaction.limits.hourly-amount:20000}") double hourlyAmount,
+                                  @Value("${transaction.limits.hourly-count:30}") int hourlyCount,
+                                  @Value("${transaction.limits.daily-amount:50000}") double dailyAmount,
+                                  @Value("${transaction.limits.daily-count:200}") int dailyCount,
+                                  @Value("${transaction.limits.rebuild-timeout:30s}") Duration rebuildTimeout) {
+        this(databaseClient, Clock.systemDefaultZone(), enabled, hourlyAmount, hourlyCount, dailyAmount, dailyCount, rebuildTimeout);
+        this.restored = !enabled;
+    }
+
+    AccountVelocityLimiter(DatabaseClient databaseClient, Clock clock, boolean enabled,
+                           double hourlyAmount, int hourlyCount, double dailyAmount, int dailyCount) {
+        this(databaseClient, clock, enabled, hourlyAmount, hourlyCount, dailyAmount, dailyCount, Duration.ofSeconds(30));
+    }
+
+    private AccountVelocityLimiter(DatabaseClient databaseClient, Clock clock, boolean enabled, double hourlyAmount,
+                                   int hourlyCount, double dailyAmount, int dailyCount, Duration rebuildTimeout) {
+        this.databaseClient = databaseClient;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.hourlyAmountCents = toCents(hourlyAmount);
+        this.hourlyCount = hourlyCount;
+        this.dailyAmountCents = toCents(dailyAmount);
+        this.dailyCount = dailyCount;
+        this.rebuildTimeout = rebuildTimeout;
+    }
+
+    /**
+     * Counts a transfer against the sender's windows, or fails with a {@link VelocityLimitExceededException}
+     * naming the limit it would break. Release the reservation if the transfer does not go through.
+     */
+    public Reservation reserve(Integer accountId, double amount) {
+        long minute = clock.millis() / 60_000;
+        long cents = toCents(amount);
+        if (!enabled) {
+            return new Reservation(accountId, cents, minute);
+        }
+        if (!restored) {
+            throw new ServiceOverloadedException("Velocity limits are still being restored", RESTORING_RETRY_AFTER);
+        }
+        String breached = windows.get(accountId, id -> new Window())
+                .reserve(minute, cents, hourlyAmountCents, hourlyCount, dailyAmountCents, dailyCount);
+        if (breached != null) {
+            throw new VelocityLimitExceededException("Account " + accountId + " exceeded its " + breached + " limit");
+        }
+        return new Reservation(accountId, cents, minute);
+    }
+
+    public void release(Reservation reservation) {
+        if (!enabled || reservation == null) {
+            return;
+        }
+        Window window = windows.getIfPresent(reservation.accountId());
+        if (window != null) {
+            window.add(reservation.minute(), -reservation.cents(), -1);
+        }
+    }
+
+    /**
+     * Releases a transfer that failed after the reservation itself is gone, e.g. in the outbox relay.
+     */
+    public void release(Integer accountId, double amount, Instant reservedAt) {
+        release(new Reservation(accountId, toCents(amount), reservedAt.toEpochMilli() / 60_000));
+    }
+
+    /**
+     * Reloads the accepted transfers of the last 24 hours. transaction.created_date has no time of day,
+     * so each transfer is booked at its outbox row's created_at, which is written in the same database
+     * transaction; the restored windows then slide exactly as if this instance had taken the transfers.
+     * Rows come oldest first, so a bucket slot is always reset by the newest minute or hour that maps to it.
+     * <p>
+     * Runs on the startup thread: the readiness state only turns to ACCEPTING_TRAFFIC after the
+     * ApplicationReadyEvent listeners return, and a rebuild that fails or outlasts {@code rebuild-timeout}
+     * fails the startup instead of leaving the limits open.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime since = LocalDateTime.now(clock).minus(REBUILD_WINDOW);
+        databaseClient.sql("SELECT t.account_id, t.amount, o.created_at FROM transaction_outbox o "
+                        + "JOIN transaction t ON t.id = o.transaction_id "
+                        + "WHERE o.created_at >= :since AND t.transact_status <> :failed ORDER BY o.created_at")
+                .bind("since", since)
+                .bind("failed", TransactionState.FAILED.status())
+                .map((row, meta) -> new Restored(row.get("account_id", Integer.class),
+                        toCents(row.get("amount", Double.class)),
+                        row.get("created_at", LocalDateTime.class).atZone(clock.getZone()).toInstant().toEpochMilli() / 60_000))
+                .all()
+                .doOnNext(restored -> windows.get(restored.accountId(), id -> new Window())
+                        .add(restored.minute(), restored.cents(), 1))
+                .count()
+                .doOnNext(transfers -> log.info("Restored velocity windows from {} transfers", transfers))
+                .block(rebuildTimeout);
+        restored = true;
+    }
+
+    private static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    public record Reservation(Integer accountId, long cents, long minute) {
+    }
+
+    private record Restored(Integer accountId, long cents, long minute) {
+    }
+
+    /**
+     * Bucket arrays updated in place under the window's monitor. A bucket is live while its epoch is
+     * inside the window; a stale bucket is reset the next time a reservation lands on its slot.
+     * The monitor is there for correctness: a reservation checks up to 84 buckets and adds to two, and
+     * all of that has to happen as one step. Transfers from one account already run one at a time
+     * through {@link AccountSequencer}, so the lock is normally uncontended; AccountVelocityLimiterBenchmark
+     * measures the contended single-account case.
+     */
+    private static final class Window {
+        private final long[] minuteEpoch = new long[MINUTES];
+        private final long[] minuteCents = new long[MINUTES];
+        private final int[] minuteCount = new int[MINUTES];
+        private final long[] hourEpoch = new long[HOURS];
+        private final long[] hourCents = new long[HOURS];
+        private final int[] hourCount = new int[HOURS];
+
+        synchronized String reserve(long minute, long cents, long hourlyCentsLimit, int hourlyCountLimit,
+                                    long dailyCentsLimit, int dailyCountLimit) {
+            String breached = check(minute, cents, hourlyCentsLimit, hourlyCountLimit, dailyCentsLimit, dailyCountLimit);
+            if (breached == null) {
+                add(minute, cents, 1);
+            }
+            return breached;
+        }
+
+        private String check(long minute, long cents, long hourlyCentsLimit, int hourlyCountLimit,
+                             long dailyCentsLimit, int dailyCountLimit) {
+            long hourCentsSum = 0;
+            int hourCountSum = 0;
+            for (int i = 0; i < MINUTES; i++) {
+                if (minuteEpoch[i] > minute - MINUTES && minuteEpoch[i] <= minute) {
+                    hourCentsSum += minuteCents[i];
+                    hourCountSum += minuteCount[i];
+                }
+            }
+            if (hourCountSum + 1 > hourlyCountLimit) {
+                return "hourly transfer count";
+            }
+            if (hourCentsSum + cents > hourlyCentsLimit) {
+                return "hourly amount";
+            }
+            long hour = minute / 60;
+            long dayCentsSum = 0;
+            int dayCountSum = 0;
+            for (int i = 0; i < HOURS; i++) {
+                if (hourEpoch[i] > hour - HOURS && hourEpoch[i] <= hour) {
+                    dayCentsSum += hourCents[i];
+                    dayCountSum += hourCount[i];
+                }
+            }
+            if (dayCountSum + 1 > dailyCountLimit) {
+                return "daily transfer count";
+            }
+            if (dayCentsSum + cents > dailyCentsLimit) {
+                return "daily amount";
+            }
+            return null;
+        }
+
+        synchronized void add(long minute, long cents, int count) {
+            int m = (int) (minute % MINUTES);
+            if (minuteEpoch[m] != minute) {
+                if (count < 0) {
+                    // the minute already slid out of the hourly window; only the daily bucket may remain
+                    addToDay(minute, cents, count);
+                    return;
+                }
+                minuteEpoch[m] = minute;
+                minuteCents[m] = 0;
+                minuteCount[m] = 0;
+            }
+            minuteCents[m] += cents;
+            minuteCount[m] += count;
+            addToDay(minute, cents, count);
+        }
+
+        private void addToDay(long minute, long cents, int count) {
+            long hour = minute / 60;
+            int h = (int) (hour % HOURS);
+            if (hourEpoch[h] != hour) {
+                if (count < 0) {
+                    return;
+                }
+                hourEpoch[h] = hour;
+                hourCents[h] = 0;
+                hourCount[h] = 0;
+            }
+            hourCents[h] += cents;
+            hourCount[h] += count;
+        }
+    }
+}
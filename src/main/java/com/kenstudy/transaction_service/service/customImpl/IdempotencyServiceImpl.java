@@ -0,0 +1,201 @@
+package com.kenstudy.transaction_service.service.customImpl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kenstudy.transaction.TransactionResponseDTO;
+import com.kenstudy.transaction.TransferRequestDTO;
+import com.kenstudy.transaction_service.exception.IdempotencyConflictException;
+import com.kenstudy.transaction_service.exception.TransactionNotFoundException;
+import com.kenstudy.transaction_service.model.IdempotencyRecord;
+import com.kenstudy.transaction_service.repository.IdempotencyRecordRepository;
+import com.kenstudy.transaction_service.service.IdempotencyService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Runs a transfer at most once per Idempotency-Key. An in-memory layer shares one execution between
+ * concurrent duplicates on this instance and replays recent results without a DB read; the
+ * idempotency_key table covers other instances and restarts.
+ * <p>
+ * The response is stored in the transaction that writes the transfer, so a crash leaves either both or
+ * neither; a key still IN_PROGRESS after {@code in-progress-timeout} belongs to a transfer that never
+ * committed and is safe to release.
+ * <p>
+ * Keys are deleted once their last write is older than {@code retention}, {@code purge-batch-size} rows
+ * per statement every {@code purge-interval}; a request repeated after that runs as a new transfer.
+ */
+@Service
+@Slf4j
+public class IdempotencyServiceImpl implements IdempotencyService {
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private final IdempotencyRecordRepository idempotencyRepository;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, Execution> executions;
+    private final Duration inProgressTimeout;
+    private final Duration retention;
+    private final Duration purgeInterval;
+    private final int purgeBatchSize;
+
+    private Disposable purge;
+
+    @Autowired
+    public IdempotencyServiceImpl(IdempotencyRecordRepository idempotencyRepository, ObjectMapper objectMapper,
+                                  @Value("${transaction.idempotency.cache-size:100000}") long cacheSize,
+                                  @Value("${transaction.idempotency.cache-ttl:10m}") Duration cacheTtl,
+                                  @Value("${transaction.idempotency.in-progress-timeout:1m}") Duration inProgressTimeout,
+                                  @Value("${transaction.idempotency.retention:24h}") Duration retention,
+                                  @Value("${transaction.idempotency.purge-interval:10m}") Duration purgeInterval,
+                                  @Value("${transaction.idempotency.purge-batch-size:1000}") int purgeBatchSize) {
+        this.idempotencyRepository = idempotencyRepository;
+        this.objectMapper = objectMapper;
+        this.inProgressTimeout = inProgressTimeout;
+        this.retention = retention;
+        this.purgeInterval = purgeInterval;
+        this.purgeBatchSize = purgeBatchSize;
+        if (retention.compareTo(inProgressTimeout) <= 0) {
+            throw new IllegalStateException("transaction.idempotency.retention (" + retention + ") must be longer than "
+                    + "the in-progress-timeout (" + inProgressTimeout + "), or live claims are deleted mid-transfer");
+        }
+        this.executions = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl)
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        purge = Flux.interval(purgeInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> purgeExpired()
+                        .onErrorResume(ex -> {
+                            log.error("Idempotency key purge failed: {}", ex.getMessage());
+                            return Mono.just(0L);
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (purge != null) {
+            purge.dispose();
+        }
+    }
+
+    /**
+     * Deletes the keys past their retention, a batch at a time, returning the number of keys deleted.
+     */
+    public Mono<Long> purgeExpired() {
+        LocalDateTime before = LocalDateTime.now().minus(retention);
+        return idempotencyRepository.purgeExpired(before, purgeBatchSize)
+                .expand(deleted -> deleted < purgeBatchSize ? Mono.empty() : idempotencyRepository.purgeExpired(before, purgeBatchSize))
+                .reduce(0L, Long::sum)
+                .doOnNext(deleted -> {
+                    if (deleted > 0) {
+                        log.info("Purged {} idempotency keys last written before {}", deleted, before);
+                    }
+                });
+    }
+
+    @Override
+    public Mono<TransactionResponseDTO> execute(String idempotencyKey, TransferRequestDTO requestDTO,
+                                                Function<Function<TransactionResponseDTO, Mono<Void>>, Mono<TransactionResponseDTO>> transfer) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            return Mono.error(new TransactionNotFoundException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters"));
+        }
+        String requestHash;
+        try {
+            requestHash = hash(requestDTO);
+        } catch (JsonProcessingException ex) {
+            return Mono.error(new TransactionNotFoundException("Transfer fund request could not be read"));
+        }
+
+        Execution execution = executions.get(idempotencyKey,
+                key -> new Execution(requestHash, runOnce(key, requestHash, transfer).cache()));
+        if (!execution.requestHash().equals(requestHash)) {
+            return Mono.error(new IdempotencyConflictException("Idempotency-Key " + idempotencyKey + " was already used for a different request"));
+        }
+        return execution.result();
+    }
+
+    private Mono<TransactionResponseDTO> runOnce(String key, String requestHash,
+                                                 Function<Function<TransactionResponseDTO, Mono<Void>>, Mono<TransactionResponseDTO>> transfer) {
+        // whole milliseconds, so created_at identifies this claim exactly when the response is stored
+        LocalDateTime claimedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        AtomicBoolean stored = new AtomicBoolean();
+        Mono<TransactionResponseDTO> claimAndRun = idempotencyRepository.claim(key, requestHash, claimedAt)
+                .onErrorResume(DataIntegrityViolationException.class, ex -> Mono.just(0))
+                .flatMap(claimed -> claimed == 0
+                        ? idempotencyRepository.findById(key).flatMap(existing -> replay(existing, requestHash))
+                        : transfer.apply(response -> store(key, claimedAt, response).doOnSuccess(done -> stored.set(true)))
+                            // a transfer that did not run the completion still has its response stored afterwards
+                            .flatMap(response -> stored.get()
+                                    ? Mono.just(response)
+                                    : store(key, claimedAt, response).thenReturn(response))
+                            .onErrorResume(ex -> idempotencyRepository.release(key, claimedAt).then(Mono.<TransactionResponseDTO>error(ex))));
+
+        return idempotencyRepository.findById(key)
+                .flatMap(existing -> replay(existing, requestHash))
+                .switchIfEmpty(claimAndRun)
+                // failures are not replayed: forget the execution so a retry can run again
+                .doOnError(ex -> executions.invalidate(key));
+    }
+
+    private Mono<TransactionResponseDTO> replay(IdempotencyRecord existing, String requestHash) {
+        if (!existing.getRequestHash().equals(requestHash)) {
+            return Mono.error(new IdempotencyConflictException("Idempotency-Key " + existing.getKey() + " was already used for a different request"));
+        }
+        if (IdempotencyRecord.COMPLETED.equals(existing.getStatus())) {
+            log.info("Replaying stored response for Idempotency-Key {}", existing.getKey());
+            return Mono.fromCallable(() -> objectMapper.readValue(existing.getResponse(), TransactionResponseDTO.class));
+        }
+        LocalDateTime staleBefore = LocalDateTime.now().minus(inProgressTimeout);
+        if (existing.getUpdatedAt().isBefore(staleBefore)) {
+            // the instance that claimed the key died mid-transfer; release it so the client can retry
+            return idempotencyRepository.releaseStale(existing.getKey(), staleBefore)
+                    .then(Mono.<TransactionResponseDTO>error(new IdempotencyConflictException("Request with Idempotency-Key " + existing.getKey() + " was interrupted, please retry")));
+        }
+        return Mono.error(new IdempotencyConflictException("Request with Idempotency-Key " + existing.getKey() + " is still in progress"));
+    }
+
+    // fails when this claim was released as stale and the key claimed again, rolling the transfer back
+    private Mono<Void> store(String key, LocalDateTime claimedAt, TransactionResponseDTO response) {
+        return Mono.fromCallable(() -> objectMapper.writeValueAsString(response))
+                .flatMap(json -> idempotencyRepository.complete(key, claimedAt, json, LocalDateTime.now()))
+                .flatMap(updated -> updated == 0
+                        ? Mono.<Void>error(new IdempotencyConflictException("Request with Idempotency-Key " + key + " was interrupted, please retry"))
+                        : Mono.<Void>empty());
+    }
+
+    private String hash(TransferRequestDTO requestDTO) throws JsonProcessingException {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(requestDTO));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private record Execution(String requestHash, Mono<TransactionResponseDTO> result) {
+    }
+}
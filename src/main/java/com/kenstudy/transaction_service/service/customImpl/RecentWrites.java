@@ -0,0 +1,54 @@
+package com.kenstudy.transaction_service.service.customImpl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kenstudy.transaction_service.config.datasource.ReplicaDataSourceProperties;
+import com.kenstudy.transaction_service.model.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Transactions and accounts written by this instance within the replica lag window. Reads that touch
+ * them go to the primary so a client polling right after a transfer sees its own write.
+ */
+@Component
+public class RecentWrites {
+    private final Cache<Integer, Boolean> transactions;
+    private final Cache<Integer, Boolean> accounts;
+
+    @Autowired
+    public RecentWrites(ReplicaDataSourceProperties properties) {
+        this.transactions = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getReadYourWritesWindow())
+                .maximumSize(100_000)
+                .build();
+        this.accounts = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getReadYourWritesWindow())
+                .maximumSize(100_000)
+                .build();
+    }
+
+    public void written(Transaction trans) {
+        if (trans.getId() != null) {
+            transactions.put(trans.getId(), Boolean.TRUE);
+        }
+        if (trans.getAccountId() != null) {
+            accounts.put(trans.getAccountId(), Boolean.TRUE);
+        }
+        if (trans.getRecipientId() != null) {
+            accounts.put(trans.getRecipientId(), Boolean.TRUE);
+        }
+    }
+
+    public void statusChanged(Integer transactionId) {
+        transactions.put(transactionId, Boolean.TRUE);
+    }
+
+    public boolean isRecentTransaction(Integer transactionId) {
+        return transactions.getIfPresent(transactionId) != null;
+    }
+
+    public boolean isRecentAccount(Integer accountId) {
+        return accountId != null && accounts.getIfPresent(accountId) != null;
+    }
+}
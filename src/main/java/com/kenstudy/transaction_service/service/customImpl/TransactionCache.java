@@ -0,0 +1,90 @@
+package com.kenstudy.transaction_service.service.customImpl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.kenstudy.transaction_service.model.Transaction;
+import com.kenstudy.transaction_service.model.TransactionSnapshot;
+import com.kenstudy.transaction_service.model.TransactionState;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of {@link TransactionSnapshot}s for status polling. Writes from this instance put or
+ * refresh entries directly; rows changed elsewhere are picked up when an in-flight entry expires,
+ * which is why completed and failed transactions may stay much longer than in-flight ones.
+ */
+@Component
+public class TransactionCache {
+    private final ObjectMapper objectMapper;
+    private final AsyncCache<Integer, TransactionSnapshot> cache;
+
+    @Autowired
+    public TransactionCache(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                            @Value("${transaction.cache.max-size:50000}") long maxSize,
+                            @Value("${transaction.cache.in-flight-ttl:2s}") Duration inFlightTtl,
+                            @Value("${transaction.cache.terminal-ttl:10m}") Duration terminalTtl) {
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.writing((Integer id, TransactionSnapshot snapshot) ->
+                        snapshot.isTerminal() ? terminalTtl : inFlightTtl))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "transactions");
+    }
+
+    /**
+     * Read-through lookup; concurrent misses for one id share a single load and empty loads are not cached.
+     */
+    public Mono<TransactionSnapshot> get(Integer transactId, Function<Integer, Mono<Transaction>> loader) {
+        return Mono.fromFuture(cache.get(transactId, (id, executor) -> loader.apply(id).map(this::snapshot).toFuture()), true);
+    }
+
+    public void put(Transaction transaction) {
+        cache.put(transaction.getId(), CompletableFuture.completedFuture(snapshot(transaction)));
+    }
+
+    /**
+     * Applies a status change this instance just wrote to the cached copies. An entry whose load is
+     * still in flight may have read the row before the change, so it is dropped rather than kept.
+     */
+    public void statusChanged(Collection<Integer> ids, TransactionState to, LocalDate date) {
+        ids.forEach(id -> cache.asMap().computeIfPresent(id, (key, loading) -> {
+            TransactionSnapshot cached = loading.isDone() && !loading.isCompletedExceptionally() ? loading.join() : null;
+            if (cached == null) {
+                return null;
+            }
+            Transaction current = cached.getTransaction();
+            return CompletableFuture.completedFuture(snapshot(new Transaction(current.getId(), current.getAccountId(),
+                    current.getRecipientId(), current.getDescription(), current.getAmount(), current.getTransactType(),
+                    to.status(), date)));
+        }));
+    }
+
+    public void invalidate(Collection<Integer> ids) {
+        cache.synchronous().invalidateAll(ids);
+    }
+
+    private TransactionSnapshot snapshot(Transaction transaction) {
+        try {
+            String etag = "\"" + transaction.getId() + "-" + transaction.getTransactionStatus() + "\"";
+            return new TransactionSnapshot(transaction, objectMapper.writeValueAsBytes(transaction), etag);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
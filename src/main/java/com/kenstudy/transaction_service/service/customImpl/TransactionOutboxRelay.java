@@ -0,0 +1,340 @@
+package com.kenstudy.transaction_service.service.customImpl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kenstudy.payment.PaymentRequestDTO;
+import com.kenstudy.transaction_service.config.DownstreamClientProperties;
+import com.kenstudy.transaction_service.config.client.TransactClient;
+import com.kenstudy.transaction_service.exception.Rejections;
+import com.kenstudy.transaction_service.exception.ResourceNotFoundException;
+import com.kenstudy.transaction_service.model.OutboxStatus;
+import com.kenstudy.transaction_service.model.TransactionOutbox;
+import com.kenstudy.transaction_service.model.TransactionState;
+import com.kenstudy.transaction_service.repository.TransactionOutboxRepository;
+import com.kenstudy.transaction_service.repository.TransactionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Delivers committed outbox rows to the payment service. Rows are claimed in batches so several
+ * pods can relay at once; failed deliveries are retried with exponential backoff until
+ * {@code transaction.outbox.max-attempts} is reached, after which the transaction is marked failed. A
+ * payment the payment service rejects (a 4xx) or a payload that cannot be read fails at once: sending
+ * it again cannot succeed.
+ * Status changes for a claimed batch are grouped: one CREATED to PENDING update before delivery, then,
+ * as deliveries finish, the outbox rows and one update per final state of each window of up to
+ * {@code outcome-batch-size} deliveries (or as many as finished within {@code outcome-window}) in one
+ * transaction. A failed write only leaves that window's rows to be delivered again once their claim
+ * goes stale.
+ * <p>
+ * A claim older than {@code claim-timeout} is taken to belong to a dead relay and is released, so the
+ * timeout must outlast the slowest delivery of a whole batch; the constructor refuses settings where
+ * it does not. Outcomes are written only while the relay's claim token still holds the row.
+ * <p>
+ * DELIVERED and FAILED rows are deleted once older than {@code retention}, {@code purge-batch-size}
+ * rows per statement every {@code purge-interval}. The velocity limiter rebuilds its daily windows from
+ * the outbox at startup, so the retention must cover more than a day.
+ */
+@Service
+@Slf4j
+public class TransactionOutboxRelay {
+    private final TransactionOutboxRepository outboxRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionStateMachine stateMachine;
+    private final TransactClient transactClient;
+    private final TransactionalOperator txOperator;
+    private final ObjectMapper objectMapper;
+    private final AccountVelocityLimiter velocityLimiter;
+    private final TransferMetrics metrics;
+
+    private final Duration pollInterval;
+    private final int batchSize;
+    private final int concurrency;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration claimTimeout;
+    private final Duration deliveryTimeout;
+    private final int outcomeBatchSize;
+    private final Duration outcomeWindow;
+    private final Duration retention;
+    private final Duration purgeInterval;
+    private final int purgeBatchSize;
+
+    private Disposable relay;
+    private Disposable purge;
+
+    @Autowired
+    public TransactionOutboxRelay(TransactionOutboxRepository outboxRepository, TransactionRepository transactionRepository,
+                                  TransactionStateMachine stateMachine,
+                                  TransactClient transactClient, TransactionalOperator txOperator, ObjectMapper objectMapper,
+                                  AccountVelocityLimiter velocityLimiter, TransferMetrics metrics,
+                                  DownstreamClientProperties clientProperties,
+                                  @Value("${transaction.outbox.poll-interval:200ms}") Duration pollInterval,
+                                  @Value("${transaction.outbox.batch-size:50}") int batchSize,
+                                  @Value("${transaction.outbox.concurrency:8}") int concurrency,
+                                  @Value("${transaction.outbox.max-attempts:8}") int maxAttempts,
+                                  @Value("${transaction.outbox.initial-backoff:500ms}") Duration initialBackoff,
+                                  @Value("${transaction.outbox.max-backoff:1m}") Duration maxBackoff,
+                                  @Value("${transaction.outbox.claim-timeout:5m}") Duration claimTimeout,
+                                  @Value("${transaction.outbox.outcome-batch-size:10}") int outcomeBatchSize,
+                                  @Value("${transaction.outbox.outcome-window:100ms}") Duration outcomeWindow,
+                                  @Value("${transaction.outbox.retention:7d}") Duration retention,
+                                  @Value("${transaction.outbox.purge-interval:1h}") Duration purgeInterval,
+                                  @Value("${transaction.outbox.purge-batch-size:1000}") int purgeBatchSize) {
+        this.outboxRepository = outboxRepository;
+        this.transactionRepository = transactionRepository;
+        this.stateMachine = stateMachine;
+        this.transactClient = transactClient;
+        this.txOperator = txOperator;
+        this.objectMapper = objectMapper;
+        this.velocityLimiter = velocityLimiter;
+        this.metrics = metrics;
+        this.pollInterval = pollInterval;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.claimTimeout = claimTimeout;
+        this.outcomeBatchSize = outcomeBatchSize;
+        this.outcomeWindow = outcomeWindow;
+        this.retention = retention;
+        this.purgeInterval = purgeInterval;
+        this.purgeBatchSize = purgeBatchSize;
+        if (retention.compareTo(AccountVelocityLimiter.REBUILD_WINDOW) <= 0) {
+            throw new IllegalStateException("transaction.outbox.retention (" + retention + ") must be longer than "
+                    + AccountVelocityLimiter.REBUILD_WINDOW + ", or the velocity limits are rebuilt from a partial outbox");
+        }
+        // the longest one payment call can take before the relay gives up on it
+        DownstreamClientProperties.Downstream payment = clientProperties.getPayment();
+        this.deliveryTimeout = payment.getConnectTimeout()
+                .plus(payment.getPendingAcquireTimeout())
+                .plus(payment.getResponseTimeout());
+        // a batch is delivered `concurrency` rows at a time, so its last row may wait for several rounds
+        Duration slowestBatch = deliveryTimeout.multipliedBy((batchSize + concurrency - 1) / concurrency);
+        if (claimTimeout.compareTo(slowestBatch.multipliedBy(2)) < 0) {
+            throw new IllegalStateException("transaction.outbox.claim-timeout (" + claimTimeout + ") must be at least twice "
+                    + "the slowest batch delivery (" + slowestBatch + "), or live claims are released and paid twice");
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        relay = Flux.interval(pollInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> relayBatch()
+                        .onErrorResume(ex -> {
+                            log.error("Outbox relay pass failed: {}", ex.getMessage());
+                            return Mono.just(0L);
+                        }))
+                .subscribe();
+        purge = Flux.interval(purgeInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> purgeFinished()
+                        .onErrorResume(ex -> {
+                            log.error("Outbox purge failed: {}", ex.getMessage());
+                            return Mono.just(0L);
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (relay != null) {
+            relay.dispose();
+        }
+        if (purge != null) {
+            purge.dispose();
+        }
+    }
+
+    /**
+     * Deletes DELIVERED and FAILED rows older than the retention, a batch at a time so no statement
+     * holds locks on a large range, returning the number of rows deleted.
+     */
+    public Mono<Long> purgeFinished() {
+        LocalDateTime before = LocalDateTime.now().minus(retention);
+        return outboxRepository.purgeFinished(before, purgeBatchSize)
+                .expand(deleted -> deleted < purgeBatchSize ? Mono.empty() : outboxRepository.purgeFinished(before, purgeBatchSize))
+                .reduce(0L, Long::sum)
+                .doOnNext(deleted -> {
+                    if (deleted > 0) {
+                        log.info("Purged {} finished outbox rows created before {}", deleted, before);
+                    }
+                });
+    }
+
+    /**
+     * Claims one batch of due rows and delivers them, returning the number of rows processed.
+     */
+    public Mono<Long> relayBatch() {
+        String token = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+
+        return outboxRepository.releaseStaleClaims(now.minus(claimTimeout))
+                .then(outboxRepository.claimDue(token, now, batchSize))
+                .flatMapMany(claimed -> claimed == 0 ? Flux.empty() : outboxRepository.findByClaimToken(token))
+                .collectList()
+                .filter(entries -> !entries.isEmpty())
+                // rows on a retry are already PENDING; the compare-and-set leaves them as they are. It runs
+                // outside a transaction, so it is committed as soon as it returns
+                .flatMap(entries -> stateMachine.transition(transactionIds(entries), TransactionState.CREATED, TransactionState.PENDING)
+                        .doOnNext(stateMachine::afterCommit)
+                        .thenMany(Flux.fromIterable(entries).flatMap(this::deliver, concurrency))
+                        .bufferTimeout(outcomeBatchSize, outcomeWindow, true)
+                        .concatMap(deliveries -> recordOutcomes(token, deliveries))
+                        .then(Mono.just((long) entries.size())))
+                .defaultIfEmpty(0L);
+    }
+
+    private Mono<Delivery> deliver(TransactionOutbox entry) {
+        return Mono.fromCallable(() -> objectMapper.readValue(entry.getPayload(), PaymentRequestDTO.class))
+                .flatMap(payDto -> transactClient.makePaymentTransfer(payDto)
+                        .timeout(deliveryTimeout)
+                        .transform(metrics.timed(TransferMetrics.PAYMENT))
+                        .filter(payRes -> !ObjectUtils.isEmpty(payRes))
+                        .switchIfEmpty(Mono.error(new ResourceNotFoundException("Payment Delivery is empty")))
+                        .map(payRes -> delivered(entry, payDto))
+                        .onErrorResume(ex -> Mono.just(attemptFailed(entry, payDto, ex))))
+                .onErrorResume(ex -> Mono.just(attemptFailed(entry, null, ex)));
+    }
+
+    private Delivery delivered(TransactionOutbox entry, PaymentRequestDTO payDto) {
+        entry.setStatus(OutboxStatus.DELIVERED.name());
+        entry.setAttempts(entry.getAttempts() + 1);
+        entry.setClaimToken(null);
+        entry.setLastError(null);
+        return new Delivery(entry, payDto, null);
+    }
+
+    private Delivery attemptFailed(TransactionOutbox entry, PaymentRequestDTO payDto, Throwable ex) {
+        int attempts = entry.getAttempts() + 1;
+        entry.setAttempts(attempts);
+        entry.setClaimToken(null);
+        entry.setLastError(StringUtils.abbreviate(ex.getMessage(), 512));
+        if (payDto == null || Rejections.isRejection(ex) || attempts >= maxAttempts) {
+            entry.setStatus(OutboxStatus.FAILED.name());
+        } else {
+            entry.setStatus(OutboxStatus.PENDING.name());
+            entry.setNextAttemptAt(LocalDateTime.now().plus(backoff(attempts)));
+        }
+        return new Delivery(entry, payDto, ex);
+    }
+
+    // rows whose claim was lost meanwhile are left to the relay that holds them now
+    private Mono<Void> recordOutcomes(String token, List<Delivery> deliveries) {
+        return Flux.fromIterable(deliveries)
+                .concatMap(delivery -> writeOutcome(token, delivery))
+                .collectList()
+                .flatMap(owned -> stateMachine.transition(transactionIds(owned, OutboxStatus.DELIVERED), TransactionState.PENDING, TransactionState.COMPLETED)
+                        .flatMap(completed -> stateMachine.transition(transactionIds(owned, OutboxStatus.FAILED), TransactionState.PENDING, TransactionState.FAILED)
+                                .map(failed -> new Recorded(owned, List.of(completed, failed)))))
+                .as(txOperator::transactional)
+                .transform(metrics.timed(TransferMetrics.COMPLETE))
+                // the cache and the recent-writes window only learn about the new states once they are committed
+                .doOnNext(recorded -> recorded.transitions().forEach(stateMachine::afterCommit))
+                .onErrorResume(ex -> {
+                    log.error("Recording the outcome of {} outbox deliveries failed; they are sent again once "
+                            + "their claim goes stale: {}", deliveries.size(), ex.getMessage());
+                    return Mono.empty();
+                })
+                .flatMapMany(recorded -> Flux.fromIterable(recorded.owned()))
+                .concatMap(this::afterOutcome)
+                .then();
+    }
+
+    private Mono<Delivery> writeOutcome(String token, Delivery delivery) {
+        TransactionOutbox entry = delivery.entry();
+        return outboxRepository.recordOutcome(entry.getId(), token, entry.getStatus(), entry.getAttempts(),
+                        entry.getNextAttemptAt(), entry.getLastError())
+                .filter(updated -> updated > 0)
+                .map(updated -> delivery)
+                .switchIfEmpty(Mono.fromRunnable(() -> {
+                    log.warn("Outbox row {} for transaction {} was claimed again before its outcome ({}) was written; "
+                            + "leaving it to the newer claim", entry.getId(), entry.getTransactionId(), entry.getStatus());
+                    metrics.outboxOutcome("claim-lost", delivery.error());
+                }));
+    }
+
+    private Mono<Void> afterOutcome(Delivery delivery) {
+        TransactionOutbox entry = delivery.entry();
+        switch (delivery.outboxStatus()) {
+            case DELIVERED -> metrics.outboxOutcome("delivered", null);
+            case FAILED -> {
+                log.error("Payment delivery for transaction {} failed after {} attempts: {}",
+                        entry.getTransactionId(), entry.getAttempts(), delivery.error().getMessage());
+                metrics.outboxOutcome("failed", delivery.error());
+                return releaseVelocity(delivery);
+            }
+            default -> {
+                log.warn("Payment delivery for transaction {} failed (attempt {}), retrying: {}",
+                        entry.getTransactionId(), entry.getAttempts(), delivery.error().getMessage());
+                metrics.outboxOutcome("retry", delivery.error());
+            }
+        }
+        return Mono.empty();
+    }
+
+    // the reservation was booked at the outbox row's created_at; an unreadable payload is released from the transaction row
+    private Mono<Void> releaseVelocity(Delivery delivery) {
+        TransactionOutbox entry = delivery.entry();
+        Instant reservedAt = entry.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant();
+        if (delivery.payDto() != null) {
+            velocityLimiter.release(delivery.payDto().getAccountId(), delivery.payDto().getAmount(), reservedAt);
+            return Mono.empty();
+        }
+        return transactionRepository.findById(entry.getTransactionId())
+                .doOnNext(transaction -> velocityLimiter.release(transaction.getAccountId(), transaction.getAmount(), reservedAt))
+                .onErrorResume(ex -> {
+                    log.warn("Could not release the velocity reservation of transaction {}: {}",
+                            entry.getTransactionId(), ex.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private static List<Integer> transactionIds(List<TransactionOutbox> entries) {
+        return entries.stream().map(TransactionOutbox::getTransactionId).toList();
+    }
+
+    private static List<Integer> transactionIds(List<Delivery> deliveries, OutboxStatus status) {
+        return deliveries.stream()
+                .filter(delivery -> delivery.outboxStatus() == status)
+                .map(delivery -> delivery.entry().getTransactionId())
+                .toList();
+    }
+
+    // exponential backoff with full jitter, capped at max-backoff
+    private Duration backoff(int attempts) {
+        long ceiling = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempts - 1, 20));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(initialBackoff.toMillis(), Math.max(ceiling, initialBackoff.toMillis()) + 1));
+    }
+
+    private record Recorded(List<Delivery> owned, List<TransactionStateMachine.Result> transitions) {
+    }
+
+    private record Delivery(TransactionOutbox entry, PaymentRequestDTO payDto, Throwable error) {
+        OutboxStatus outboxStatus() {
+            return OutboxStatus.valueOf(entry.getStatus());
+        }
+    }
+}
@@ -1,98 +1,345 @@
 package com.kenstudy.transaction_service.service.customImpl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kenstudy.customer.CustomerResponseDTO;
 import com.kenstudy.payment.PaymentRequestDTO;
-import com.kenstudy.payment.PaymentResponseDTO;
-import com.kenstudy.transaction.TransactStatus;
 import com.kenstudy.transaction.TransactType;
 import com.kenstudy.transaction.TransactionResponseDTO;
 import com.kenstudy.transaction.TransferRequestDTO;
 import com.kenstudy.transaction_service.config.client.TransactClient;
+import com.kenstudy.transaction_service.config.datasource.ReadOnlyRouting;
 import com.kenstudy.transaction_service.exception.ResourceNotFoundException;
 import com.kenstudy.transaction_service.exception.TransactionNotFoundException;
+import com.kenstudy.transaction_service.model.BatchTransferResult;
+import com.kenstudy.transaction_service.model.OutboxStatus;
 import com.kenstudy.transaction_service.model.Transaction;
+import com.kenstudy.transaction_service.model.TransactionHistoryPage;
+import com.kenstudy.transaction_service.model.TransactionHistoryQuery;
+import com.kenstudy.transaction_service.model.TransactionOutbox;
+import com.kenstudy.transaction_service.model.TransactionSnapshot;
+import com.kenstudy.transaction_service.model.TransactionState;
+import com.kenstudy.transaction_service.repository.TransactionOutboxRepository;
+import com.kenstudy.transaction_service.repository.TransactionHistoryRepositoryImpl;
 import com.kenstudy.transaction_service.repository.TransactionRepository;
 import com.kenstudy.transaction_service.service.TransactionService;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ObjectUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
 import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 @Service
 @Slf4j
 public class TransactionServiceImpl implements TransactionService {
+    private static final int DEFAULT_HISTORY_PAGE = 50;
+    private static final int MAX_HISTORY_PAGE = 500;
 
     private final TransactClient transactClient;
     private final TransactionRepository transactionRepository;
     private final TransactionalOperator txOperator;
+    private final TransactionOutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+    private final AccountVelocityLimiter velocityLimiter;
+    private final TransferMetrics metrics;
+    private final RecentWrites recentWrites;
+    private final TransactionCache transactionCache;
+    private final AccountSequencer accountSequencer;
+
+    private final int batchConcurrency;
+    private final int batchInsertSize;
+    private final Duration batchInsertWindow;
 
     @Autowired
-    public TransactionServiceImpl(TransactClient transactClient, TransactionRepository transactionRepository, TransactionalOperator txOperator) {
+    public TransactionServiceImpl(TransactClient transactClient, TransactionRepository transactionRepository, TransactionalOperator txOperator,
+                                  TransactionOutboxRepository outboxRepository, ObjectMapper objectMapper,
+                                  AccountVelocityLimiter velocityLimiter, TransferMetrics metrics,
+                                  RecentWrites recentWrites, TransactionCache transactionCache,
+                                  AccountSequencer accountSequencer,
+                                  @Value("${transaction.batch.concurrency:16}") int batchConcurrency,
+                                  @Value("${transaction.batch.insert-size:100}") int batchInsertSize,
+                                  @Value("${transaction.batch.insert-window:50ms}") Duration batchInsertWindow) {
         this.transactClient = transactClient;
         this.transactionRepository = transactionRepository;
         this.txOperator = txOperator;
+        this.outboxRepository = outboxRepository;
+        this.objectMapper = objectMapper;
+        this.velocityLimiter = velocityLimiter;
+        this.metrics = metrics;
+        this.recentWrites = recentWrites;
+        this.transactionCache = transactionCache;
+        this.accountSequencer = accountSequencer;
+        this.batchConcurrency = batchConcurrency;
+        this.batchInsertSize = batchInsertSize;
+        this.batchInsertWindow = batchInsertWindow;
     }
 
 
     @Override
     public Mono<TransactionResponseDTO> transferFund(TransferRequestDTO requestDTO) {
+        return transferFund(requestDTO, response -> Mono.empty());
+    }
+
+    @Override
+    public Mono<TransactionResponseDTO> transferFund(TransferRequestDTO requestDTO, Function<TransactionResponseDTO, Mono<Void>> inTransaction) {
         if (ObjectUtils.isEmpty(requestDTO)) {
             return Mono.error(new TransactionNotFoundException("Transfer fund request must not be empty"));
         }
-        // Transactional DB Save (no external call inside)
-        Mono<Transaction> savedTransactionMono = Mono.justOrEmpty(requestDTO.getAccountId())
+        // transfers from one sender run in arrival order, so its limit checks and writes never interleave
+        return accountSequencer.submit(requestDTO.getAccountId(), () -> validateTransfer(requestDTO)
+                        .flatMap(trans -> reserveVelocity(trans)
+                                .flatMap(reservation -> releaseUnlessPersisted(reservation,
+                                        persistTransfer(trans, requestDTO, inTransaction))))
+                        .flatMap(saved -> mapToTransResponseDto(saved, requestDTO)))
+                .transform(metrics.timed(TransferMetrics.TOTAL));
+
+    }
+
+    // Transaction row and its outbox entry commit together; TransactionOutboxRelay delivers the payment afterwards
+    private Mono<Transaction> persistTransfer(Transaction trans, TransferRequestDTO requestDTO,
+                                              Function<TransactionResponseDTO, Mono<Void>> inTransaction) {
+        return transactionRepository.save(trans)
+                .flatMap(saved -> {
+                    if (saved.getId() == null) {
+                        return Mono.error(new TransactionNotFoundException("Transaction ID is null after save"));
+                    }
+                    return Mono.just(saved);
+                })
+                .flatMap(saved -> mapToPaymtTrans(saved, requestDTO)
+                        .flatMap(this::toOutboxEntry)
+                        .flatMap(outboxRepository::save)
+                        .then(mapToTransResponseDto(saved, requestDTO).flatMap(inTransaction))
+                        .thenReturn(saved))
+                .as(txOperator::transactional)
+                .doOnNext(saved -> {
+                    recentWrites.written(saved);
+                    transactionCache.put(saved);
+                })
+                .transform(metrics.timed(TransferMetrics.PERSIST));
+    }
+
+    // a client that disconnects cancels the transfer; unless the commit already went through, the
+    // reservation is given back just as it is when the transfer fails
+    private Mono<Transaction> releaseUnlessPersisted(AccountVelocityLimiter.Reservation reservation, Mono<Transaction> persist) {
+        AtomicBoolean persisted = new AtomicBoolean();
+        return persist
+                .doOnNext(saved -> persisted.set(true))
+                .doFinally(signal -> {
+                    if ((signal == SignalType.ON_ERROR || signal == SignalType.CANCEL) && !persisted.get()) {
+                        velocityLimiter.release(reservation);
+                    }
+                });
+    }
+
+    private Mono<AccountVelocityLimiter.Reservation> reserveVelocity(Transaction trans) {
+        return Mono.fromCallable(() -> velocityLimiter.reserve(trans.getAccountId(), trans.getAmount()))
+                .transform(metrics.timed(TransferMetrics.VELOCITY));
+    }
+
+    @Override
+    public Flux<BatchTransferResult> transferFundBatch(Flux<TransferRequestDTO> requests) {
+        return requests.index()
+                .flatMap(indexed -> validateBatchItem(indexed.getT1(), indexed.getT2()), batchConcurrency)
+                // fair backpressure: the plain bufferTimeout keeps emitting on the timer while inserts lag
+                // and fails with an overflow; this one only requests what the insert stage has asked for
+                .bufferTimeout(batchInsertSize, batchInsertWindow, true)
+                // items still buffered when the client goes away never reach the insert; without prefetch no
+                // chunk waits in concatMap's queue, where the discard hook cannot see inside it
+                .doOnDiscard(BatchItem.class, item -> velocityLimiter.release(item.reservation()))
+                .concatMap(this::insertValidated, 0)
+                .concatMap(item -> item.error() != null
+                        ? Mono.just(toBatchFailure(item, item.error()))
+                        : mapToTransResponseDto(item.transaction(), item.request())
+                            .map(response -> toBatchSuccess(item, response)));
+    }
+
+    private Mono<Transaction> validateTransfer(TransferRequestDTO requestDTO) {
+        return Mono.justOrEmpty(requestDTO.getAccountId())
                 .flatMap(transactClient::getCustomerAndAcctDetails)
+                .transform(metrics.timed(TransferMetrics.SENDER_LOOKUP))
                 .switchIfEmpty(Mono.error(new TransactionNotFoundException("Sender details not found")))
                 .zipWith(Mono.justOrEmpty(requestDTO.getRecipientId())
                         .flatMap(transactClient::getCustomerAndAcctDetails)
+                        .transform(metrics.timed(TransferMetrics.RECIPIENT_LOOKUP))
                     .switchIfEmpty(Mono.error(new TransactionNotFoundException("Receiver details not found"))))
-                .flatMap(tuple -> {
-                    var sender = tuple.getT1();
-                    var receiver = tuple.getT2();
-
-                    return checkTransactRequest(sender, requestDTO, receiver)
-                            .switchIfEmpty(Mono.error(new ResourceNotFoundException("Invalid transaction request")))
-                            .flatMap(transactionRepository::save)
-                            .flatMap(saved -> {
-                                if (saved.getId() == null) {
-                                    return Mono.error(new TransactionNotFoundException("Transaction ID is null after save"));
-                                }
-                                return Mono.just(saved);
-                    });
-        }).as(txOperator::transactional); // commit DB transaction before making external call
-
-// External PaymentDelivery API Call (after DB transaction is committed/persisted)
-        return savedTransactionMono.delayElement(Duration.ofMillis(200)) // delay to ensure DB visibility
-                .flatMap(trs -> mapToPaymtTrans(trs, requestDTO)
-                        .flatMap(transactClient::makePaymentTransfer)
-                        .flatMap(payRes -> mapToTransact(payRes, trs))
-                        .flatMap(transactionRepository::save)
-                        .flatMap(finalSave -> mapToTransResponseDto(finalSave, requestDTO)));
-
-    }
-
-    private Mono<Transaction> mapToTransact(PaymentResponseDTO response, Transaction trans) {
-        if (ObjectUtils.isEmpty(response)) {
-            return Mono.error(new ResourceNotFoundException("Payment Delivery is empty"));
+                .flatMap(tuple -> checkTransactRequest(tuple.getT1(), requestDTO, tuple.getT2())
+                        .switchIfEmpty(Mono.error(new ResourceNotFoundException("Invalid transaction request"))));
+    }
+
+    private Mono<TransactionOutbox> toOutboxEntry(PaymentRequestDTO payDto) {
+        return Mono.fromCallable(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            TransactionOutbox entry = new TransactionOutbox();
+            entry.setTransactionId(payDto.getTransactionId());
+            entry.setPayload(objectMapper.writeValueAsString(payDto));
+            entry.setStatus(OutboxStatus.PENDING.name());
+            entry.setAttempts(0);
+            entry.setNextAttemptAt(now);
+            entry.setCreatedAt(now);
+            return entry;
+        });
+    }
+
+    private Mono<BatchItem> validateBatchItem(long index, TransferRequestDTO requestDTO) {
+        if (ObjectUtils.isEmpty(requestDTO)) {
+            return Mono.just(new BatchItem(index, requestDTO, null, null,
+                    new TransactionNotFoundException("Transfer fund request must not be empty")));
+        }
+        // limit checks share the sender's lane with its single transfers; the insert comes later, per chunk.
+        // A task the sequencer already started still runs when the batch is cancelled, so a reservation
+        // it makes after that is given back here
+        AtomicBoolean abandoned = new AtomicBoolean();
+        return accountSequencer.submit(requestDTO.getAccountId(), () -> validateTransfer(requestDTO)
+                        .flatMap(trans -> reserveVelocity(trans)
+                                .doOnNext(reservation -> {
+                                    if (abandoned.get()) {
+                                        velocityLimiter.release(reservation);
+                                    }
+                                })
+                                .map(reservation -> new BatchItem(index, requestDTO, trans, reservation, null))))
+                .doOnCancel(() -> abandoned.set(true))
+                .onErrorResume(ex -> Mono.just(new BatchItem(index, requestDTO, null, null, ex)));
+    }
+
+    // One batched insert (one statement, a binding per row, plus the outbox rows) per buffered chunk, in one
+    // transaction; rows that failed validation pass straight through
+    private Flux<BatchItem> insertValidated(List<BatchItem> items) {
+        List<BatchItem> valid = items.stream().filter(item -> item.error() == null).toList();
+        List<BatchItem> rejected = items.stream().filter(item -> item.error() != null).toList();
+        if (valid.isEmpty()) {
+            return Flux.fromIterable(rejected);
         }
-        trans.setTransactionStatus(TransactStatus.TRANSACTION_COMPLETED.name());
-        trans.setCreatedDate(LocalDate.now());
-        return Mono.just(trans);
+        // set once the chunk has committed or its reservations were given back after a failed insert
+        AtomicBoolean settled = new AtomicBoolean();
+        Flux<BatchItem> inserted = transactionRepository.insertAll(valid.stream().map(BatchItem::transaction).toList())
+                .thenMany(Flux.fromIterable(valid))
+                .concatMap(item -> mapToPaymtTrans(item.transaction(), item.request()).flatMap(this::toOutboxEntry))
+                .collectList()
+                .flatMapMany(outboxRepository::saveAll)
+                .as(txOperator::transactional)
+                .doOnComplete(() -> settled.set(true))
+                .thenMany(Flux.fromIterable(valid))
+                .doOnNext(item -> {
+                    recentWrites.written(item.transaction());
+                    transactionCache.put(item.transaction());
+                })
+                .onErrorResume(ex -> {
+                    log.error("Batch insert of {} transactions failed: {}", valid.size(), ex.getMessage());
+                    settled.set(true);
+                    valid.forEach(item -> velocityLimiter.release(item.reservation()));
+                    return Flux.fromIterable(valid).map(item -> item.withError(ex));
+                })
+                .doOnCancel(() -> {
+                    if (!settled.get()) {
+                        valid.forEach(item -> velocityLimiter.release(item.reservation()));
+                    }
+                });
+        return Flux.concat(Flux.fromIterable(rejected), inserted);
     }
 
+    private BatchTransferResult toBatchSuccess(BatchItem item, TransactionResponseDTO response) {
+        return BatchTransferResult.builder()
+                .index(item.index())
+                .accountId(response.getAccountId())
+                .recipientId(response.getRecipientId())
+                .outcome(BatchTransferResult.SUCCESS)
+                .transaction(response)
+                .build();
+    }
+
+    private BatchTransferResult toBatchFailure(BatchItem item, Throwable ex) {
+        TransferRequestDTO req = item.request();
+        return BatchTransferResult.builder()
+                .index(item.index())
+                .accountId(req == null ? null : req.getAccountId())
+                .recipientId(req == null ? null : req.getRecipientId())
+                .outcome(BatchTransferResult.FAILED)
+                .error(ex.getMessage())
+                .build();
+    }
+
+    private record BatchItem(long index, TransferRequestDTO request, Transaction transaction,
+                             AccountVelocityLimiter.Reservation reservation, Throwable error) {
+        BatchItem withError(Throwable ex) {
+            return new BatchItem(index, request, transaction, reservation, ex);
+        }
+    }
 
+    // Reads go to the replica unless this instance just wrote the row; a row the replica has not caught up
+    // on yet (written through another instance) falls back to the primary instead of reporting not found
     @Override
     public Mono<Transaction> getTransaction(Integer transactId) {
-        return Mono.justOrEmpty(transactId).flatMap(transactionRepository::findById);
+        return getTransactionSnapshot(transactId).map(TransactionSnapshot::getTransaction);
+    }
+
+    @Override
+    public Mono<TransactionSnapshot> getTransactionSnapshot(Integer transactId) {
+        return Mono.justOrEmpty(transactId)
+                .flatMap(id -> transactionCache.get(id, this::loadTransaction));
+    }
+
+    private Mono<Transaction> loadTransaction(Integer transactId) {
+        return Mono.just(transactId)
+                .flatMap(id -> recentWrites.isRecentTransaction(id)
+                        ? transactionRepository.findById(id)
+                        : transactionRepository.findById(id)
+                            .as(ReadOnlyRouting::readOnly)
+                            .switchIfEmpty(Mono.defer(() -> transactionRepository.findById(id))));
+    }
+
+    @Override
+    public Mono<TransactionHistoryPage> getTransactionHistory(TransactionHistoryQuery query) {
+        return checkHistoryQuery(query)
+                .flatMap(checked -> {
+                    int pageSize = checked.getLimit() <= 0 ? DEFAULT_HISTORY_PAGE : Math.min(checked.getLimit(), MAX_HISTORY_PAGE);
+                    // one extra row tells us whether there is a next page; the caller's query is left as it was
+                    return findHistory(checked.toBuilder().limit(pageSize + 1).build())
+                            .collectList()
+                            .map(rows -> {
+                                List<Transaction> items = rows.size() > pageSize ? rows.subList(0, pageSize) : rows;
+                                String nextCursor = rows.size() > pageSize
+                                        ? TransactionHistoryRepositoryImpl.encodeCursor(items.get(items.size() - 1))
+                                        : null;
+                                return TransactionHistoryPage.builder().items(items).nextCursor(nextCursor).build();
+                            });
+                });
+    }
+
+    @Override
+    public Flux<Transaction> streamTransactionHistory(TransactionHistoryQuery query) {
+        return checkHistoryQuery(query)
+                .flatMapMany(this::findHistory);
+    }
+
+    private Flux<Transaction> findHistory(TransactionHistoryQuery query) {
+        if (recentWrites.isRecentAccount(query.getAccountId()) || recentWrites.isRecentAccount(query.getRecipientId())) {
+            return transactionRepository.findHistory(query);
+        }
+        return transactionRepository.findHistory(query).as(ReadOnlyRouting::readOnly);
+    }
+
+    private Mono<TransactionHistoryQuery> checkHistoryQuery(TransactionHistoryQuery query) {
+        if (query.getAccountId() == null && query.getRecipientId() == null) {
+            return Mono.error(new TransactionNotFoundException("History requires an accountId and/or recipientId"));
+        }
+        if (query.getFromDate() != null && query.getToDate() != null && query.getFromDate().isAfter(query.getToDate())) {
+            return Mono.error(new TransactionNotFoundException("History 'from' date must not be after 'to' date"));
+        }
+        return Mono.just(query);
     }
 
 
-    private Mono<PaymentRequestDTO> mapToPaymtTrans(Transaction res, TransferRequestDTO trans) {
+    Mono<PaymentRequestDTO> mapToPaymtTrans(Transaction res, TransferRequestDTO trans) {
         PaymentRequestDTO paymt = new PaymentRequestDTO();
         paymt.setTransactStatus(res.getTransactionStatus());
         paymt.setTransactionId(res.getId());
@@ -104,7 +351,7 @@ public class TransactionServiceImpl implements TransactionService {
     }
 
 
-    private Mono<Transaction> checkTransactRequest(CustomerResponseDTO sender, TransferRequestDTO requestDTO, CustomerResponseDTO receiver) {
+    Mono<Transaction> checkTransactRequest(CustomerResponseDTO sender, TransferRequestDTO requestDTO, CustomerResponseDTO receiver) {
 
         if (!sender.getAccountId().equals(requestDTO.getAccountId()) || !receiver.getAccountId().equals(requestDTO.getRecipientId())) {
             return Mono.error(new TransactionNotFoundException("Sender/Receiver Account ID does not match"));
@@ -126,14 +373,14 @@ public class TransactionServiceImpl implements TransactionService {
         transaction.setRecipientId(requestDTO.getRecipientId());
         transaction.setAmount(requestDTO.getAmount());
         transaction.setDescription(requestDTO.getDescription());
-        transaction.setTransactionStatus(TransactStatus.TRANSACTION_CREATED.name());
+        transaction.setTransactionStatus(TransactionState.CREATED.status());
         transaction.setTransactType(TransactType.TRANSFER.name());
         transaction.setCreatedDate(LocalDate.now());
 
         return Mono.just(transaction);
     }
 
-    private Mono<TransactionResponseDTO> mapToTransResponseDto(Transaction trans, TransferRequestDTO req) {
+    Mono<TransactionResponseDTO> mapToTransResponseDto(Transaction trans, TransferRequestDTO req) {
         TransactionResponseDTO output = new TransactionResponseDTO();
         output.setAccountId(trans.getAccountId());
         output.setTransactionId(trans.getId());
@@ -0,0 +1,105 @@
+package com.kenstudy.transaction_service.service.customImpl;
+
+import com.kenstudy.transaction_service.model.Transaction;
+import com.kenstudy.transaction_service.model.TransactionState;
+import com.kenstudy.transaction_service.repository.TransactionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Applies {@link TransactionState} transitions as compare-and-set updates. A row that is no longer in
+ * the expected state (already moved on, or moved by someone else) is skipped by the database rather
+ * than overwritten, and the caller learns which rows ended up in the target state and which did not.
+ * <p>
+ * A transition only writes the rows. {@link RecentWrites} and {@link TransactionCache} are told about it
+ * through {@link #afterCommit(Result)}, which the caller runs once the surrounding transaction has
+ * committed, so a rollback never leaves a state in the cache that the database does not have.
+ */
+@Slf4j
+@Component
+public class TransactionStateMachine {
+    private final TransactionRepository transactionRepository;
+    private final RecentWrites recentWrites;
+    private final TransactionCache transactionCache;
+
+    @Autowired
+    public TransactionStateMachine(TransactionRepository transactionRepository, RecentWrites recentWrites,
+                                   TransactionCache transactionCache) {
+        this.transactionRepository = transactionRepository;
+        this.recentWrites = recentWrites;
+        this.transactionCache = transactionCache;
+    }
+
+    /**
+     * Moves {@code ids} from {@code from} to {@code to}. Rows found in {@code to} afterwards count as
+     * applied, including those an earlier or concurrent pass already moved; the rest were in some other
+     * state, are left alone and are reported as rejected. Pass the result to {@link #afterCommit(Result)}
+     * once the change is committed.
+     */
+    public Mono<Result> transition(Collection<Integer> ids, TransactionState from, TransactionState to) {
+        if (!from.canTransitionTo(to)) {
+            return Mono.error(new IllegalStateException("Transaction cannot move from " + from + " to " + to));
+        }
+        LocalDate today = LocalDate.now();
+        if (ids.isEmpty()) {
+            return Mono.just(new Result(to, today, List.of(), List.of()));
+        }
+        return transactionRepository.compareAndSetStatus(ids, from.status(), to.status(), today)
+                .flatMap(updated -> updated == ids.size()
+                        ? Mono.just(new Result(to, today, List.copyOf(ids), List.of()))
+                        : classify(ids, from, to, today));
+    }
+
+    /**
+     * Marks the applied rows as recently written and brings their cached copies up to date. Run it only
+     * after the transaction that made the transition has committed.
+     */
+    public void afterCommit(Result result) {
+        // rows are marked as recently written first, so a reload after the cache change reads the primary
+        result.applied().forEach(recentWrites::statusChanged);
+        if (result.rejected().isEmpty()) {
+            transactionCache.statusChanged(result.applied(), result.to(), result.date());
+        } else {
+            // rows moved elsewhere carry another date; their cached copies are reloaded on next read
+            transactionCache.invalidate(result.applied());
+            transactionCache.invalidate(result.rejected());
+        }
+    }
+
+    private Mono<Result> classify(Collection<Integer> ids, TransactionState from, TransactionState to, LocalDate today) {
+        return transactionRepository.findAllById(ids)
+                .collectMap(Transaction::getId, Transaction::getTransactionStatus)
+                .map(statuses -> {
+                    List<Integer> applied = new ArrayList<>();
+                    Map<Integer, String> rejected = new TreeMap<>();
+                    ids.forEach(id -> {
+                        String status = statuses.get(id);
+                        if (to.status().equals(status)) {
+                            applied.add(id);
+                        } else {
+                            rejected.put(id, status == null ? "missing" : status);
+                        }
+                    });
+                    if (!rejected.isEmpty()) {
+                        log.warn("{} of {} transactions could not move from {} to {} and were left as they are: {}",
+                                rejected.size(), ids.size(), from, to, rejected);
+                    }
+                    return new Result(to, today, applied, List.copyOf(rejected.keySet()));
+                });
+    }
+
+    /**
+     * Ids now in the target state {@code to} (as of {@code date}), and ids left in some other state.
+     */
+    public record Result(TransactionState to, LocalDate date, List<Integer> applied, List<Integer> rejected) {
+    }
+}
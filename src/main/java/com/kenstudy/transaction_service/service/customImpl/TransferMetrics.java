@@ -0,0 +1,67 @@
+package com.kenstudy.transaction_service.service.customImpl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+/**
+ * Per-stage timers for the transfer pipeline. Every stage records into
+ * {@code transaction.transfer.stage} tagged with the stage name, its outcome
+ * (success, empty, error, cancelled) and, on error, the exception type.
+ */
+@Component
+public class TransferMetrics {
+    static final String TOTAL = "total";
+    static final String SENDER_LOOKUP = "sender-lookup";
+    static final String RECIPIENT_LOOKUP = "recipient-lookup";
+    static final String VELOCITY = "velocity-reserve";
+    static final String PERSIST = "persist";
+    static final String PAYMENT = "payment";
+    static final String COMPLETE = "complete";
+
+    private static final String NONE = "none";
+
+    private final MeterRegistry registry;
+
+    @Autowired
+    public TransferMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Times each subscription to the wrapped Mono, from subscribe to its terminal signal.
+     */
+    public <T> Function<Mono<T>, Mono<T>> timed(String stage) {
+        return mono -> Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return mono
+                    .doOnSuccess(value -> stop(sample, stage, value == null ? "empty" : "success", NONE))
+                    .doOnError(ex -> stop(sample, stage, "error", ex.getClass().getSimpleName()))
+                    .doOnCancel(() -> stop(sample, stage, "cancelled", NONE));
+        });
+    }
+
+    /**
+     * Counts what the outbox relay did with a claimed row: delivered, retry or failed.
+     */
+    public void outboxOutcome(String outcome, Throwable ex) {
+        Counter.builder("transaction.outbox.deliveries")
+                .tag("outcome", outcome)
+                .tag("exception", ex == null ? NONE : ex.getClass().getSimpleName())
+                .register(registry)
+                .increment();
+    }
+
+    private void stop(Timer.Sample sample, String stage, String outcome, String exception) {
+        sample.stop(Timer.builder("transaction.transfer.stage")
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .tag("exception", exception)
+                .register(registry));
+    }
+}
@@ -0,0 +1,38 @@
+CREATE TABLE IF NOT EXISTS transaction (
+    id              INT AUTO_INCREMENT PRIMARY KEY,
+    account_id      INT,
+    recipient_id    INT,
+    description     VARCHAR(255),
+    amount          DOUBLE,
+    transact_type   VARCHAR(32),
+    transact_status VARCHAR(32),
+    created_date    DATE,
+    INDEX idx_transaction_account_history (account_id, created_date, id),
+    INDEX idx_transaction_recipient_history (recipient_id, created_date, id)
+);
+
+CREATE TABLE IF NOT EXISTS transaction_outbox (
+    id              BIGINT AUTO_INCREMENT PRIMARY KEY,
+    transaction_id  INT          NOT NULL,
+    payload         TEXT         NOT NULL,
+    status          VARCHAR(16)  NOT NULL,
+    attempts        INT          NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME(3)  NOT NULL,
+    claim_token     VARCHAR(36),
+    claimed_at      DATETIME(3),
+    last_error      VARCHAR(512),
+    created_at      DATETIME(3)  NOT NULL,
+    INDEX idx_outbox_status_next_attempt (status, next_attempt_at),
+    INDEX idx_outbox_claim_token (claim_token),
+    INDEX idx_outbox_created_at (created_at)
+);
+
+CREATE TABLE IF NOT EXISTS idempotency_key (
+    idem_key        VARCHAR(128) PRIMARY KEY,
+    request_hash    CHAR(64)     NOT NULL,
+    status          VARCHAR(16)  NOT NULL,
+    response        TEXT,
+    created_at      DATETIME(3)  NOT NULL,
+    updated_at      DATETIME(3)  NOT NULL,
+    INDEX idx_idempotency_updated_at (updated_at)
+);
@@ -1,10 +1,9 @@
 package com.kenstudy.transaction_service;
 
+import com.kenstudy.transaction_service.support.IntegrationTest;
 import org.junit.jupiter.api.Test;
-import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
-class TransactionServiceApplicationTests {
+class TransactionServiceApplicationTests extends IntegrationTest {
 
 	@Test
 	void contextLoads() {
@@ -0,0 +1,127 @@
+package com.kenstudy.transaction_service.admission;
+
+import com.kenstudy.transaction_service.model.Transaction;
+import com.kenstudy.transaction_service.repository.TransactionRepository;
+import com.kenstudy.transaction_service.support.IntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * The admission filters on the real routes, rendered through GlobalExceptionHandler: transfers get a
+ * burst of two, reads one request in flight.
+ */
+class AdmissionControlFilterTests extends IntegrationTest {
+    private static final int HISTORY_ACCOUNT = 80_001;
+    // enough NDJSON that the socket buffers fill up while the client is not reading
+    private static final int HISTORY_ROWS = 60_000;
+    private static final Duration WAIT = Duration.ofSeconds(30);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @DynamicPropertySource
+    static void admission(DynamicPropertyRegistry registry) {
+        registry.add("transaction.admission.transfer.enabled", () -> "true");
+        registry.add("transaction.admission.transfer.global-rate", () -> "0.01");
+        registry.add("transaction.admission.transfer.global-burst", () -> "2");
+        registry.add("transaction.admission.transfer.account-rate", () -> "0");
+        registry.add("transaction.admission.read.enabled", () -> "true");
+        registry.add("transaction.admission.read.initial-concurrency", () -> "1");
+        registry.add("transaction.admission.read.min-concurrency", () -> "1");
+        registry.add("transaction.admission.read.max-concurrency", () -> "1");
+        registry.add("transaction.admission.read.overload-retry-after", () -> "2s");
+    }
+
+    @Test
+    void aDrainedRateBucketIsRejectedWith429AndRetryAfter() {
+        transfer(80_101).expectStatus().isCreated();
+        transfer(80_102).expectStatus().isCreated();
+
+        transfer(80_103).expectStatus().isEqualTo(429)
+                .expectHeader().value(HttpHeaders.RETRY_AFTER, retryAfter ->
+                        assertThat(Long.parseLong(retryAfter)).isBetween(1L, 100L))
+                .expectBody().jsonPath("$.status").isEqualTo(429);
+    }
+
+    @Test
+    void aStreamingHistoryHoldsItsPermitUntilTheBodyIsWritten() throws Exception {
+        String description = "history ".repeat(31);
+        Flux.range(0, HISTORY_ROWS / 1_000)
+                .concatMap(chunk -> transactionRepository.insertAll(IntStream.range(0, 1_000)
+                        .mapToObj(i -> new Transaction(null, HISTORY_ACCOUNT, HISTORY_ACCOUNT + 1, description, 25.0,
+                                "TRANSFER", "TRANSACTION_COMPLETED", LocalDate.now()))
+                        .toList()))
+                .blockLast(WAIT);
+
+        // reads one buffer and then stops, so the server's write stalls part way through the body
+        CountDownLatch started = new CountDownLatch(1);
+        BaseSubscriber<DataBuffer> stalledClient = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                subscription.request(1);
+            }
+
+            @Override
+            protected void hookOnNext(DataBuffer buffer) {
+                DataBufferUtils.release(buffer);
+                started.countDown();
+            }
+        };
+        WebClient.create("http://localhost:" + port).get()
+                .uri("/v1/transaction/history?accountId={accountId}", HISTORY_ACCOUNT)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .subscribe(stalledClient);
+        assertThat(started.await(WAIT.toSeconds(), TimeUnit.SECONDS)).isTrue();
+
+        // the history handler returned long ago; its body is still being written
+        read().expectStatus().isEqualTo(503)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "2")
+                .expectBody().jsonPath("$.status").isEqualTo(503);
+
+        stalledClient.dispose();
+        await().atMost(WAIT).untilAsserted(() ->
+                read().expectStatus().value(status -> assertThat(status).isNotEqualTo(503)));
+    }
+
+    private WebTestClient.ResponseSpec transfer(int accountId) {
+        return webTestClient.post().uri("/v1/transaction/fund-transfer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(transferJson(accountId, accountId + 1, 25.0, "admission"))
+                .exchange();
+    }
+
+    private WebTestClient.ResponseSpec read() {
+        return webTestClient.get().uri("/v1/transaction/{id}", Integer.MAX_VALUE)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange();
+    }
+}
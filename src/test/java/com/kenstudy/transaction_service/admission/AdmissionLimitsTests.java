@@ -0,0 +1,58 @@
+package com.kenstudy.transaction_service.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class AdmissionLimitsTests {
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void tokenBucketAllowsBurstThenRefillsAtRate() {
+        TokenBucket bucket = new TokenBucket(10, 5, 0);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(bucket.tryAcquire(0)).isZero();
+        }
+        long wait = bucket.tryAcquire(0);
+        assertThat(wait).isCloseTo(SECOND / 10, within(2L));
+        assertThat(bucket.tryAcquire(wait + 1)).isZero();
+        // a long idle period refills only up to the burst size
+        long later = 100 * SECOND;
+        for (int i = 0; i < 5; i++) {
+            assertThat(bucket.tryAcquire(later)).isZero();
+        }
+        assertThat(bucket.tryAcquire(later)).isPositive();
+    }
+
+    @Test
+    void concurrencyLimitRejectsOverLimitAndShrinksOnOverload() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 2, 10, Duration.ofSeconds(10), 0.5);
+        List<AdaptiveConcurrencyLimit.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            permits.add(limit.tryAcquire());
+        }
+        assertThat(permits).doesNotContainNull();
+        assertThat(limit.tryAcquire()).isNull();
+
+        permits.get(0).release(true, true);
+        permits.get(0).release(true, true); // a second release of the same permit is ignored
+        assertThat(limit.limit()).isEqualTo(2);
+        assertThat(limit.inFlight()).isEqualTo(3);
+        assertThat(limit.tryAcquire()).isNull();
+    }
+
+    @Test
+    void concurrencyLimitGrowsWhileRequestsAreFast() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, Duration.ofSeconds(10), 0.5);
+        for (int i = 0; i < 20; i++) {
+            limit.tryAcquire().release(true, false);
+        }
+        assertThat(limit.limit()).isGreaterThan(2);
+    }
+}
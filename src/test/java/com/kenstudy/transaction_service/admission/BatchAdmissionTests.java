@@ -0,0 +1,71 @@
+package com.kenstudy.transaction_service.admission;
+
+import com.kenstudy.transaction_service.model.BatchTransferResult;
+import com.kenstudy.transaction_service.support.IntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Batch rows pay into the same global bucket as single transfers: a burst of three and one token every
+ * two seconds.
+ */
+class BatchAdmissionTests extends IntegrationTest {
+    private static final int FIRST_ACCOUNT = 82_001;
+    private static final int ROWS = 5;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @DynamicPropertySource
+    static void admission(DynamicPropertyRegistry registry) {
+        registry.add("transaction.admission.transfer.enabled", () -> "true");
+        registry.add("transaction.admission.transfer.global-rate", () -> "0.5");
+        registry.add("transaction.admission.transfer.global-burst", () -> "3");
+        registry.add("transaction.admission.transfer.account-rate", () -> "0");
+    }
+
+    @Test
+    void aBatchIsPacedPerRowAndDrainsTheBucketSingleTransfersUse() {
+        String body = IntStream.range(0, ROWS)
+                .mapToObj(i -> transferJson(FIRST_ACCOUNT + i, FIRST_ACCOUNT + 100 + i, 25.0, "batch admission " + i))
+                .collect(Collectors.joining("\n"));
+
+        long started = System.nanoTime();
+        List<BatchTransferResult> results = webTestClient.mutate().responseTimeout(Duration.ofSeconds(30)).build()
+                .post().uri("/v1/transaction/fund-transfer/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(BatchTransferResult.class)
+                .getResponseBody()
+                .collectList()
+                .block(Duration.ofSeconds(30));
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+        assertThat(results).hasSize(ROWS)
+                .allMatch(result -> BatchTransferResult.SUCCESS.equals(result.getOutcome()));
+        // three rows fit the burst; the last two wait two seconds each for a token
+        assertThat(elapsed).isGreaterThan(Duration.ofSeconds(3));
+
+        webTestClient.post().uri("/v1/transaction/fund-transfer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(transferJson(FIRST_ACCOUNT + ROWS, FIRST_ACCOUNT + 100 + ROWS, 25.0, "batch admission"))
+                .exchange()
+                .expectStatus().isEqualTo(429)
+                .expectHeader().exists(HttpHeaders.RETRY_AFTER);
+    }
+}
@@ -0,0 +1,32 @@
+package com.kenstudy.transaction_service.config;
+
+import com.kenstudy.payment.PaymentRequestDTO;
+import com.kenstudy.transaction.TransferRequestDTO;
+import com.kenstudy.transaction_service.exception.DownstreamServerException;
+import com.kenstudy.transaction_service.model.Transaction;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionRuntimeHintsTests {
+    private final RuntimeHints hints = new RuntimeHints();
+
+    TransactionRuntimeHintsTests() {
+        new TransactionRuntimeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void bindsTheDtosAndModelsJacksonReadsAndWrites() throws NoSuchMethodException {
+        assertThat(RuntimeHintsPredicates.reflection().onType(TransferRequestDTO.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(PaymentRequestDTO.class.getMethod("getAmount"))).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(Transaction.class.getMethod("setTransactionStatus", String.class))).accepts(hints);
+    }
+
+    @Test
+    void registersConfiguredExceptionsAndSchema() {
+        assertThat(RuntimeHintsPredicates.reflection().onType(DownstreamServerException.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.resource().forResource("schema.sql")).accepts(hints);
+    }
+}
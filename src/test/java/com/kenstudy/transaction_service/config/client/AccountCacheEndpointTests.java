@@ -0,0 +1,57 @@
+package com.kenstudy.transaction_service.config.client;
+
+import com.kenstudy.transaction_service.support.IntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccountCacheEndpointTests extends IntegrationTest {
+    private static final int ACCOUNT_ID = 20_001;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private TransactClient transactClient;
+
+    @Autowired
+    private CustomerDetailsCache customerDetailsCache;
+
+    @Test
+    void statsAndEvictionAreServedByActuator() {
+        transactClient.getCustomerAndAcctDetails(ACCOUNT_ID).block(Duration.ofSeconds(5));
+        long requestsBefore = ACCOUNT.requests();
+        transactClient.getCustomerAndAcctDetails(ACCOUNT_ID).block(Duration.ofSeconds(5));
+        assertThat(ACCOUNT.requests()).isEqualTo(requestsBefore);
+
+        webTestClient.get().uri("/actuator/accountcache")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.size").isNumber()
+                .jsonPath("$.hitCount").isNumber()
+                .jsonPath("$.evictionCount").isNumber();
+
+        webTestClient.delete().uri("/actuator/accountcache/{accountId}", ACCOUNT_ID)
+                .exchange()
+                .expectStatus().isNoContent();
+
+        transactClient.getCustomerAndAcctDetails(ACCOUNT_ID).block(Duration.ofSeconds(5));
+        assertThat(ACCOUNT.requests()).isEqualTo(requestsBefore + 1);
+        assertThat(customerDetailsCache.size()).isPositive();
+    }
+
+    @Test
+    void businessRoutesNoLongerExposeTheCache() {
+        webTestClient.delete().uri("/v1/transaction/account-cache/{accountId}", ACCOUNT_ID)
+                .exchange()
+                .expectStatus().value(status -> assertThat(status).isGreaterThanOrEqualTo(400));
+        webTestClient.get().uri("/v1/transaction/account-cache/stats")
+                .exchange()
+                .expectStatus().value(status -> assertThat(status).isGreaterThanOrEqualTo(400));
+    }
+}
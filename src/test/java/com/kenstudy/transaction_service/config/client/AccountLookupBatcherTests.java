@@ -0,0 +1,202 @@
+package com.kenstudy.transaction_service.config.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kenstudy.customer.CustomerResponseDTO;
+import com.kenstudy.transaction_service.config.DownstreamClientProperties;
+import com.kenstudy.transaction_service.support.DownstreamStub;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccountLookupBatcherTests {
+    private static final int LOOKUPS = 5000;
+    private static final int WARM_UP = 500;
+    private static final int WARM_UP_FROM = 100_000;
+    private static final int CONCURRENCY = 200;
+    private static final int UNKNOWN_ACCOUNT = 999_999;
+    private static final Duration STUB_LATENCY = Duration.ofMillis(5);
+    private static final Duration BATCH_WINDOW = Duration.ofMillis(5);
+    private static final Duration P99_SLACK = BATCH_WINDOW.plusMillis(5);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger bulkCalls = new AtomicInteger();
+    private DisposableServer accountStub;
+    private WebClient webClient;
+
+    @BeforeEach
+    void startAccountStub() {
+        accountStub = HttpServer.create()
+                .port(0)
+                .route(routes -> routes
+                        .post("/v1/account/customer-acct-details/bulk", (req, res) -> {
+                            bulkCalls.incrementAndGet();
+                            return res.header("Content-Type", "application/json")
+                                    .sendString(req.receive().aggregate().asString()
+                                            .delayElement(STUB_LATENCY)
+                                            .map(this::bulkResponse));
+                        }))
+                .bindNow();
+        webClient = WebClient.builder().baseUrl("http://localhost:" + accountStub.port()).build();
+    }
+
+    @AfterEach
+    void stopAccountStub() {
+        accountStub.disposeNow();
+    }
+
+    @Test
+    void theClientCoalescesConcurrentLookupsWithoutRaisingTheP99() {
+        DownstreamStub account = DownstreamStub.account(STUB_LATENCY, Duration.ZERO, 0);
+        TransactClient batchedClient = transactClient(account, true);
+        TransactClient singleClient = transactClient(account, false);
+        try {
+            // connections and JIT warmed up on account ids the measured runs do not use
+            run(batchedClient, WARM_UP_FROM, WARM_UP);
+            run(singleClient, WARM_UP_FROM + WARM_UP, WARM_UP);
+
+            long before = account.requests();
+            Lookups batched = run(batchedClient, 0, LOOKUPS);
+            long batchedRequests = account.requests() - before;
+            before = account.requests();
+            Lookups single = run(singleClient, LOOKUPS, LOOKUPS);
+            long singleRequests = account.requests() - before;
+
+            System.out.printf("single GETs: %d requests, p50 %.1fms, p99 %.1fms%n",
+                    singleRequests, single.percentile(0.50), single.percentile(0.99));
+            System.out.printf("batched:     %d requests, p50 %.1fms, p99 %.1fms%n",
+                    batchedRequests, batched.percentile(0.50), batched.percentile(0.99));
+
+            // every caller gets its own account back, whichever batch it landed in
+            assertThat(batched.accountIds()).isEqualTo(IntStream.range(0, LOOKUPS).boxed().toList());
+            assertThat(single.accountIds()).isEqualTo(IntStream.range(LOOKUPS, 2 * LOOKUPS).boxed().toList());
+            assertThat(singleRequests).isEqualTo(LOOKUPS);
+            assertThat(batchedRequests).isPositive().isLessThan(LOOKUPS / 10);
+            // the batch window may add to the median, but must not push the tail past one window of slack
+            assertThat(batched.percentile(0.99))
+                    .as("batched p99 against single-GET p99 (ms)")
+                    .isLessThanOrEqualTo(single.percentile(0.99) + P99_SLACK.toMillis());
+        } finally {
+            batchedClient.close();
+            account.close();
+        }
+    }
+
+    @Test
+    void missingAccountOnlyAffectsItsOwnCallers() {
+        AccountLookupBatcher batcher = new AccountLookupBatcher(this::bulkFetch, 100, Duration.ofMillis(20), 4);
+
+        Mono<CustomerResponseDTO> first = batcher.lookup(1).cache();
+        Mono<CustomerResponseDTO> unknown = batcher.lookup(UNKNOWN_ACCOUNT).cache();
+        Mono<CustomerResponseDTO> second = batcher.lookup(2).cache();
+        Flux.merge(first, unknown, second).blockLast(Duration.ofSeconds(5));
+        batcher.dispose();
+
+        StepVerifier.create(first).assertNext(customer -> assertThat(customer.getAccountId()).isEqualTo(1)).verifyComplete();
+        StepVerifier.create(unknown).verifyComplete();
+        StepVerifier.create(second).assertNext(customer -> assertThat(customer.getAccountId()).isEqualTo(2)).verifyComplete();
+        assertThat(bulkCalls).hasValue(1);
+    }
+
+    @Test
+    void failedBulkCallOnlyFailsTheCallersInThatBatch() {
+        AtomicInteger batches = new AtomicInteger();
+        Function<Set<Integer>, Mono<List<CustomerResponseDTO>>> firstBatchFails = accountIds -> batches.incrementAndGet() == 1
+                ? Mono.error(new IllegalStateException("account service unavailable"))
+                : bulkFetch(accountIds);
+        AccountLookupBatcher batcher = new AccountLookupBatcher(firstBatchFails, 2, Duration.ofSeconds(1), 1);
+
+        // maxSize 2: accounts 1 and 2 form the failing batch, 3 and 4 the next one
+        List<Mono<CustomerResponseDTO>> lookups = Flux.range(1, 4)
+                .map(accountId -> batcher.lookup(accountId).cache())
+                .collectList()
+                .block();
+        lookups.forEach(lookup -> lookup.onErrorResume(ex -> Mono.empty()).subscribe());
+
+        StepVerifier.create(lookups.get(0)).expectErrorMessage("account service unavailable").verify(Duration.ofSeconds(5));
+        StepVerifier.create(lookups.get(1)).expectErrorMessage("account service unavailable").verify(Duration.ofSeconds(5));
+        StepVerifier.create(lookups.get(2)).assertNext(customer -> assertThat(customer.getAccountId()).isEqualTo(3)).verifyComplete();
+        StepVerifier.create(lookups.get(3)).assertNext(customer -> assertThat(customer.getAccountId()).isEqualTo(4)).verifyComplete();
+        batcher.dispose();
+        assertThat(batches).hasValue(2);
+    }
+
+    // distinct account ids, so every lookup misses the client's cache and reaches the account service
+    private static Lookups run(TransactClient client, int firstAccountId, int lookups) {
+        List<long[]> results = Flux.range(firstAccountId, lookups)
+                .flatMapSequential(accountId -> Mono.defer(() -> {
+                    long start = System.nanoTime();
+                    return client.getCustomerAndAcctDetails(accountId)
+                            .map(customer -> new long[]{customer.getAccountId(), System.nanoTime() - start});
+                }), CONCURRENCY)
+                .collectList()
+                .block(Duration.ofMinutes(1));
+        return new Lookups(results.stream().map(result -> (int) result[0]).toList(),
+                results.stream().map(result -> result[1]).sorted().toList());
+    }
+
+    private static TransactClient transactClient(DownstreamStub account, boolean batched) {
+        DownstreamClientProperties properties = new DownstreamClientProperties();
+        properties.getAccount().setBaseUrl(account.baseUrl());
+        properties.getAccountBatch().setEnabled(batched);
+        properties.getAccountBatch().setWindow(BATCH_WINDOW);
+        WebClient accountWebClient = WebClient.builder().baseUrl(account.baseUrl()).build();
+        // a bulkhead wide enough for the single-GET run, which would otherwise be rejected rather than slow
+        BulkheadRegistry bulkheads = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(CONCURRENCY)
+                .maxWaitDuration(Duration.ofSeconds(5))
+                .build());
+        return new TransactClient(accountWebClient, accountWebClient, new CustomerDetailsCache(4 * LOOKUPS, Duration.ofMinutes(1)),
+                bulkheads, CircuitBreakerRegistry.ofDefaults(), properties);
+    }
+
+    private Mono<List<CustomerResponseDTO>> bulkFetch(Set<Integer> accountIds) {
+        return webClient.post()
+                .uri("/v1/account/customer-acct-details/bulk")
+                .bodyValue(accountIds)
+                .retrieve()
+                .bodyToFlux(CustomerResponseDTO.class)
+                .collectList();
+    }
+
+    private String bulkResponse(String body) {
+        try {
+            List<Integer> ids = objectMapper.readValue(body, new TypeReference<List<Integer>>() { });
+            return ids.stream()
+                    .filter(id -> id != UNKNOWN_ACCOUNT)
+                    .map(AccountLookupBatcherTests::customerJson)
+                    .collect(Collectors.joining(",", "[", "]"));
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String customerJson(int accountId) {
+        return "{\"id\":" + accountId + ",\"accountId\":" + accountId + "}";
+    }
+
+    private record Lookups(List<Integer> accountIds, List<Long> sortedNanos) {
+        double percentile(double p) {
+            return sortedNanos.get((int) Math.min(sortedNanos.size() - 1, Math.ceil(p * sortedNanos.size()) - 1)) / 1e6;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.kenstudy.transaction_service.config.client;
+
+import com.kenstudy.customer.CustomerResponseDTO;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class CustomerDetailsCacheTests {
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void concurrentMissesShareOneDownstreamCall() {
+        CustomerDetailsCache cache = new CustomerDetailsCache(100, Duration.ofMinutes(1));
+        Sinks.One<CustomerResponseDTO> downstream = Sinks.one();
+        Function<Integer, Mono<CustomerResponseDTO>> loader = accountId -> {
+            loads.incrementAndGet();
+            return downstream.asMono();
+        };
+
+        List<Mono<CustomerResponseDTO>> callers = Flux.range(0, 50).map(i -> cache.get(1, loader)).collectList().block();
+        Mono<List<CustomerResponseDTO>> all = Flux.merge(callers).collectList();
+        downstream.tryEmitValue(customer(1));
+
+        StepVerifier.create(all)
+                .assertNext(found -> assertThat(found).hasSize(50).allMatch(customer -> customer.getAccountId() == 1))
+                .verifyComplete();
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats().missCount()).isEqualTo(1);
+        assertThat(cache.stats().hitCount()).isEqualTo(49);
+    }
+
+    @Test
+    void oneCallerCancellingDoesNotCancelTheSharedCall() {
+        CustomerDetailsCache cache = new CustomerDetailsCache(100, Duration.ofMinutes(1));
+        Sinks.One<CustomerResponseDTO> downstream = Sinks.one();
+        Function<Integer, Mono<CustomerResponseDTO>> loader = accountId -> {
+            loads.incrementAndGet();
+            return downstream.asMono();
+        };
+
+        cache.get(2, loader).subscribe().dispose();
+        Mono<CustomerResponseDTO> survivor = cache.get(2, loader);
+        downstream.tryEmitValue(customer(2));
+
+        StepVerifier.create(survivor).expectNextCount(1).verifyComplete();
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void failedAndEmptyLookupsAreNotCached() {
+        CustomerDetailsCache cache = new CustomerDetailsCache(100, Duration.ofMinutes(1));
+
+        StepVerifier.create(cache.get(3, id -> countedLoad(Mono.error(new IllegalStateException("account service down")))))
+                .expectError(IllegalStateException.class)
+                .verify(Duration.ofSeconds(5));
+        StepVerifier.create(cache.get(3, id -> countedLoad(Mono.empty())))
+                .verifyComplete();
+        StepVerifier.create(cache.get(3, id -> countedLoad(Mono.just(customer(3)))))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertThat(loads).hasValue(3);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidateForcesTheNextLookupDownstream() {
+        CustomerDetailsCache cache = new CustomerDetailsCache(100, Duration.ofMinutes(1));
+
+        cache.get(4, id -> countedLoad(Mono.just(customer(4)))).block(Duration.ofSeconds(5));
+        cache.get(4, id -> countedLoad(Mono.just(customer(4)))).block(Duration.ofSeconds(5));
+        assertThat(loads).hasValue(1);
+
+        cache.invalidate(4);
+        cache.get(4, id -> countedLoad(Mono.just(customer(4)))).block(Duration.ofSeconds(5));
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void evictsBeyondMaxSizeAndCountsIt() {
+        CustomerDetailsCache cache = new CustomerDetailsCache(10, Duration.ofMinutes(1));
+
+        Flux.range(100, 200)
+                .concatMap(accountId -> cache.get(accountId, id -> countedLoad(Mono.just(customer(id)))))
+                .blockLast(Duration.ofSeconds(10));
+
+        // Caffeine evicts during its asynchronous maintenance, shortly after the writes
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            assertThat(cache.size()).isLessThanOrEqualTo(10);
+            assertThat(cache.stats().evictionCount()).isGreaterThanOrEqualTo(190);
+        });
+    }
+
+    @Test
+    void entriesExpireAfterTheTtl() throws InterruptedException {
+        CustomerDetailsCache cache = new CustomerDetailsCache(100, Duration.ofMillis(50));
+
+        cache.get(5, id -> countedLoad(Mono.just(customer(5)))).block(Duration.ofSeconds(5));
+        Thread.sleep(100);
+        cache.get(5, id -> countedLoad(Mono.just(customer(5)))).block(Duration.ofSeconds(5));
+
+        assertThat(loads).hasValue(2);
+    }
+
+    private Mono<CustomerResponseDTO> countedLoad(Mono<CustomerResponseDTO> result) {
+        loads.incrementAndGet();
+        return result;
+    }
+
+    private static CustomerResponseDTO customer(int accountId) {
+        CustomerResponseDTO customer = new CustomerResponseDTO();
+        customer.setId(accountId);
+        customer.setAccountId(accountId);
+        return customer;
+    }
+}
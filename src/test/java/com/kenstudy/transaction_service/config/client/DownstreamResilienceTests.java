@@ -0,0 +1,141 @@
+package com.kenstudy.transaction_service.config.client;
+
+import com.kenstudy.transaction_service.support.DownstreamStub;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * The account client's breaker, bulkhead and response timeout, wired as in production but with small
+ * limits, against a {@link DownstreamStub} that can fail or slow down on demand.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///resilience;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "spring.sql.init.mode=always",
+        "transaction.outbox.poll-interval=1h",
+        "transaction.limits.enabled=false",
+        "transaction.admission.transfer.enabled=false",
+        "transaction.admission.read.enabled=false",
+        "transaction.client.account.response-timeout=1s",
+        "resilience4j.circuitbreaker.instances.account.sliding-window-size=4",
+        "resilience4j.circuitbreaker.instances.account.minimum-number-of-calls=4",
+        "resilience4j.circuitbreaker.instances.account.wait-duration-in-open-state=1h",
+        "resilience4j.circuitbreaker.instances.account.automatic-transition-from-open-to-half-open-enabled=false",
+        "resilience4j.bulkhead.instances.account.max-concurrent-calls=2"
+})
+@AutoConfigureWebTestClient
+class DownstreamResilienceTests {
+    private static final DownstreamStub ACCOUNT = DownstreamStub.account(Duration.ZERO, Duration.ZERO, 0);
+    private static final DownstreamStub PAYMENT = DownstreamStub.payment(Duration.ZERO, Duration.ZERO, 0);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    private BulkheadRegistry bulkheadRegistry;
+
+    @DynamicPropertySource
+    static void downstreams(DynamicPropertyRegistry registry) {
+        registry.add("transaction.client.account.base-url", ACCOUNT::baseUrl);
+        registry.add("transaction.client.payment.base-url", PAYMENT::baseUrl);
+    }
+
+    @AfterEach
+    void healDownstream() {
+        ACCOUNT.errorRate(0);
+        ACCOUNT.latency(Duration.ZERO);
+        circuitBreakerRegistry.circuitBreaker("account").reset();
+    }
+
+    @AfterAll
+    static void stopStubs() {
+        ACCOUNT.close();
+        PAYMENT.close();
+    }
+
+    @Test
+    void anOpenBreakerFailsFastWith503WithoutCallingTheAccountService() {
+        ACCOUNT.errorRate(1.0);
+        CircuitBreaker breaker = circuitBreakerRegistry.circuitBreaker("account");
+        AtomicInteger accountId = new AtomicInteger(50_001);
+        // each failed lookup counts; the breaker opens once the four-call window is full of failures
+        await().atMost(Duration.ofSeconds(10)).until(() -> {
+            transfer(accountId.getAndIncrement()).expectStatus().value(status -> assertThat(status).isIn(404, 503));
+            return breaker.getState() == CircuitBreaker.State.OPEN;
+        });
+
+        long requestsBefore = ACCOUNT.requests();
+        transfer(accountId.getAndIncrement()).expectStatus().isEqualTo(503);
+        assertThat(ACCOUNT.requests()).isEqualTo(requestsBefore);
+    }
+
+    @Test
+    void aFullBulkheadRejectsWith503() {
+        ACCOUNT.latency(Duration.ofMillis(800));
+        Bulkhead bulkhead = bulkheadRegistry.bulkhead("account");
+        // the sender and recipient lookups of one slow transfer take both permits; max-wait-duration is 0,
+        // so the next transfer is rejected at once
+        Disposable inFlight = WebClient.create("http://localhost:" + port)
+                .post().uri("/v1/transaction/fund-transfer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(transferJson(50_101))
+                .exchangeToMono(res -> res.releaseBody())
+                .subscribe();
+
+        await().atMost(Duration.ofMillis(700)).until(() -> bulkhead.getMetrics().getAvailableConcurrentCalls() == 0);
+        long start = System.nanoTime();
+        transfer(50_102).expectStatus().isEqualTo(503);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(500));
+        inFlight.dispose();
+    }
+
+    @Test
+    void aSlowAccountServiceIsCutOffAtTheResponseTimeout() {
+        ACCOUNT.latency(Duration.ofSeconds(5));
+
+        long start = System.nanoTime();
+        transfer(50_201).expectStatus().is5xxServerError();
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(3));
+    }
+
+    private WebTestClient.ResponseSpec transfer(int accountId) {
+        return webTestClient.post().uri("/v1/transaction/fund-transfer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(transferJson(accountId))
+                .exchange();
+    }
+
+    private static String transferJson(int accountId) {
+        return "{\"accountId\":" + accountId + ",\"customerId\":" + accountId + ",\"recipientId\":"
+                + (accountId + 1_000) + ",\"amount\":25.0,\"description\":\"resilience\"}";
+    }
+}
@@ -0,0 +1,71 @@
+package com.kenstudy.transaction_service.config.datasource;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaRoutingConnectionFactoryTests {
+    private final ConnectionFactory primary = ConnectionFactories.get("r2dbc:h2:mem:///routing-primary;DB_CLOSE_DELAY=-1");
+    private final ConnectionFactory replica = ConnectionFactories.get("r2dbc:h2:mem:///routing-replica;DB_CLOSE_DELAY=-1");
+
+    private ReplicaRoutingConnectionFactory routing;
+    private DatabaseClient client;
+
+    @BeforeEach
+    void setUp() {
+        // same table in both databases, different contents, so each read shows where it was served
+        seed(primary, "primary");
+        seed(replica, "replica");
+        routing = new ReplicaRoutingConnectionFactory(primary, replica);
+        routing.afterPropertiesSet();
+        client = DatabaseClient.create(routing);
+    }
+
+    @Test
+    void readsWithoutHintUsePrimary() {
+        assertThat(source().block()).isEqualTo("primary");
+    }
+
+    @Test
+    void readOnlyHintUsesReplica() {
+        assertThat(source().as(ReadOnlyRouting::readOnly).block()).isEqualTo("replica");
+    }
+
+    @Test
+    void transactionsStayOnPrimaryEvenWithReadOnlyStatements() {
+        TransactionalOperator txOperator = TransactionalOperator.create(new R2dbcTransactionManager(routing));
+
+        String source = client.sql("UPDATE origin SET writes = writes + 1").then()
+                .then(source().as(ReadOnlyRouting::readOnly))
+                .as(txOperator::transactional)
+                .block();
+
+        assertThat(source).isEqualTo("primary");
+        assertThat(writes(primary)).isEqualTo(1);
+        assertThat(writes(replica)).isZero();
+    }
+
+    private Mono<String> source() {
+        return client.sql("SELECT name FROM origin").map(row -> row.get("name", String.class)).one();
+    }
+
+    private static void seed(ConnectionFactory factory, String name) {
+        DatabaseClient db = DatabaseClient.create(factory);
+        db.sql("DROP TABLE IF EXISTS origin").then()
+                .then(db.sql("CREATE TABLE origin (name VARCHAR(16), writes INT)").then())
+                .then(db.sql("INSERT INTO origin VALUES (:name, 0)").bind("name", name).then())
+                .block();
+    }
+
+    private static Integer writes(ConnectionFactory factory) {
+        return DatabaseClient.create(factory).sql("SELECT writes FROM origin")
+                .map(row -> row.get("writes", Integer.class)).one().block();
+    }
+}
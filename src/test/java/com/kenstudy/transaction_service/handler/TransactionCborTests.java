@@ -0,0 +1,92 @@
+package com.kenstudy.transaction_service.handler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.kenstudy.transaction.TransferRequestDTO;
+import com.kenstudy.transaction_service.support.IntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.ServerRequest;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionCborTests extends IntegrationTest {
+    private static final MediaType CBOR = MediaType.APPLICATION_CBOR;
+
+    private final CBORMapper cborMapper = CBORMapper.builder().findAndAddModules().build();
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void aTransferRoundTripsAsCbor() throws IOException {
+        TransferRequestDTO request = new TransferRequestDTO();
+        request.setAccountId(90_001);
+        request.setCustomerId(90_001);
+        request.setRecipientId(90_002);
+        request.setAmount(42.5);
+        request.setDescription("cbor");
+
+        EntityExchangeResult<byte[]> created = webTestClient.post().uri("/v1/transaction/fund-transfer")
+                .contentType(CBOR)
+                .accept(CBOR)
+                .bodyValue(cborMapper.writeValueAsBytes(request))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().contentType(CBOR)
+                .expectBody(byte[].class)
+                .returnResult();
+        JsonNode transfer = cborMapper.readTree(created.getResponseBody());
+        assertThat(transfer.get("accountId").asInt()).isEqualTo(90_001);
+        assertThat(transfer.get("amount").asDouble()).isEqualTo(42.5);
+        int transactionId = transfer.get("transactionId").asInt();
+
+        EntityExchangeResult<byte[]> fetched = webTestClient.get().uri("/v1/transaction/{id}", transactionId)
+                .accept(CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(CBOR)
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .expectBody(byte[].class)
+                .returnResult();
+        JsonNode transaction = cborMapper.readTree(fetched.getResponseBody());
+        assertThat(transaction.get("id").asInt()).isEqualTo(transactionId);
+        assertThat(transaction.get("description").asText()).isEqualTo("cbor");
+        String etag = fetched.getResponseHeaders().getETag();
+        assertThat(etag).endsWith("-cbor\"");
+
+        webTestClient.get().uri("/v1/transaction/{id}", transactionId)
+                .accept(CBOR)
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    }
+
+    @Test
+    void theResponseTypeFollowsQualityValuesNotHeaderOrder() {
+        assertThat(responseType("application/json;q=0.5, application/cbor")).isEqualTo(CBOR);
+        assertThat(responseType("application/cbor;q=0.2, application/json")).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(responseType("*/*, application/cbor")).isEqualTo(CBOR);
+        assertThat(responseType("application/cbor;q=0, */*")).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(responseType("application/cbor")).isEqualTo(CBOR);
+        assertThat(TransactionHandler.responseType(request(MockServerHttpRequest.get("/")))).isEqualTo(MediaType.APPLICATION_JSON);
+    }
+
+    private static MediaType responseType(String accept) {
+        return TransactionHandler.responseType(request(MockServerHttpRequest.get("/").header(HttpHeaders.ACCEPT, accept)));
+    }
+
+    private static ServerRequest request(MockServerHttpRequest.BaseBuilder<?> builder) {
+        return ServerRequest.create(MockServerWebExchange.from(builder), HandlerStrategies.withDefaults().messageReaders());
+    }
+}
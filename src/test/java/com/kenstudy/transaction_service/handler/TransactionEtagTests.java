@@ -0,0 +1,98 @@
+package com.kenstudy.transaction_service.handler;
+
+import com.kenstudy.transaction_service.model.Transaction;
+import com.kenstudy.transaction_service.model.TransactionState;
+import com.kenstudy.transaction_service.repository.TransactionRepository;
+import com.kenstudy.transaction_service.service.customImpl.TransactionStateMachine;
+import com.kenstudy.transaction_service.support.IntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionEtagTests extends IntegrationTest {
+    private static final Duration WAIT = Duration.ofSeconds(10);
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionStateMachine stateMachine;
+
+    @Test
+    void servesTheTransactionWithAnEtag() {
+        Transaction transaction = transaction(70_001, TransactionState.COMPLETED);
+
+        webTestClient.get().uri("/v1/transaction/{id}", transaction.getId())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG,
+                        "\"" + transaction.getId() + "-" + TransactionState.COMPLETED.status() + "\"")
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .expectBody().jsonPath("$.transactionStatus").isEqualTo(TransactionState.COMPLETED.status());
+    }
+
+    @Test
+    void aMatchingIfNoneMatchIsAnsweredWith304FromTheCache() {
+        Transaction transaction = transaction(70_011, TransactionState.COMPLETED);
+        String etag = etag(transaction.getId());
+
+        // the row is gone from the database, so only the cached snapshot can answer
+        transactionRepository.deleteById(transaction.getId()).block(WAIT);
+
+        webTestClient.get().uri("/v1/transaction/{id}", transaction.getId())
+                .accept(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, etag)
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void aTransitionChangesTheEtagSoTheClientGetsTheNewState() {
+        Transaction transaction = transaction(70_021, TransactionState.PENDING);
+        String pending = etag(transaction.getId());
+
+        stateMachine.transition(List.of(transaction.getId()), TransactionState.PENDING, TransactionState.COMPLETED)
+                .doOnNext(stateMachine::afterCommit)
+                .block(WAIT);
+
+        String completed = webTestClient.get().uri("/v1/transaction/{id}", transaction.getId())
+                .accept(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_NONE_MATCH, pending)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.transactionStatus").isEqualTo(TransactionState.COMPLETED.status())
+                .returnResult()
+                .getResponseHeaders()
+                .getETag();
+        assertThat(completed).isNotEqualTo(pending).contains(TransactionState.COMPLETED.status());
+    }
+
+    private String etag(Integer transactionId) {
+        return webTestClient.get().uri("/v1/transaction/{id}", transactionId)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Void.class)
+                .getResponseHeaders()
+                .getETag();
+    }
+
+    private Transaction transaction(int accountId, TransactionState state) {
+        return transactionRepository.save(new Transaction(null, accountId, accountId + 1, "etag", 25.0, "TRANSFER",
+                state.status(), LocalDate.now())).block(WAIT);
+    }
+}
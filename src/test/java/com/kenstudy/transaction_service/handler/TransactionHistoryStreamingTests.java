@@ -0,0 +1,144 @@
+package com.kenstudy.transaction_service.handler;
+
+import com.kenstudy.transaction_service.model.Transaction;
+import com.kenstudy.transaction_service.repository.TransactionRepository;
+import com.kenstudy.transaction_service.service.TransactionService;
+import com.kenstudy.transaction_service.support.IntegrationTest;
+import io.netty.channel.ChannelOption;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * GET /history over HTTP: paged JSON unless the client asks for NDJSON by name, and a stream that only
+ * reads as far ahead of a slow client as the socket buffers hold.
+ */
+class TransactionHistoryStreamingTests extends IntegrationTest {
+    private static final int ROUTING_ACCOUNT = 81_001;
+    private static final int STREAMING_ACCOUNT = 81_011;
+    // ~400 bytes of NDJSON per row, ~60MB in all: far more than the socket buffers between server and client
+    private static final int ROWS = 150_000;
+    private static final Duration WAIT = Duration.ofSeconds(60);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @MockitoSpyBean
+    private TransactionService transactionService;
+
+    private final AtomicLong fetched = new AtomicLong();
+    private final List<Long> requested = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    @BeforeEach
+    void countStreamedRows() {
+        doAnswer(invocation -> ((Flux<?>) invocation.callRealMethod())
+                .doOnRequest(requested::add)
+                .doOnNext(row -> fetched.incrementAndGet())
+                .doOnCancel(() -> cancelled.set(true)))
+                .when(transactionService).streamTransactionHistory(any());
+    }
+
+    @Test
+    void historyIsPagedJsonUnlessNdjsonIsAskedForByName() {
+        seed(ROUTING_ACCOUNT, 3, "routing");
+
+        history(null).expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBody().jsonPath("$.items.length()").isEqualTo(3);
+        history("*/*").expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBody().jsonPath("$.items.length()").isEqualTo(3);
+        history("application/x-ndjson;q=0, application/json").expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON);
+
+        history(MediaType.APPLICATION_NDJSON_VALUE).expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Transaction.class).hasSize(3);
+    }
+
+    @Test
+    void aSlowClientHoldsBackTheRowsReadFromTheDatabase() {
+        seed(STREAMING_ACCOUNT, ROWS, "history ".repeat(31));
+
+        // reads one buffer and then stops, like a client that cannot keep up
+        BaseSubscriber<DataBuffer> slowClient = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                subscription.request(1);
+            }
+
+            @Override
+            protected void hookOnNext(DataBuffer buffer) {
+                DataBufferUtils.release(buffer);
+            }
+        };
+        // a small receive buffer, so what the client's socket holds is negligible next to the body
+        HttpClient smallWindow = HttpClient.create().option(ChannelOption.SO_RCVBUF, 64 * 1024);
+        WebClient.builder().baseUrl("http://localhost:" + port)
+                .clientConnector(new ReactorClientHttpConnector(smallWindow))
+                .build().get()
+                .uri("/v1/transaction/history?accountId={accountId}", STREAMING_ACCOUNT)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .subscribe(slowClient);
+
+        // the server stops reading once the buffers between it and the stalled client are full
+        AtomicLong lastSeen = new AtomicLong(-1);
+        await().atMost(WAIT).pollInterval(Duration.ofMillis(500))
+                .until(() -> fetched.get() > 0 && lastSeen.getAndSet(fetched.get()) == fetched.get());
+        assertThat(fetched.get()).as("rows read for a client that took one buffer").isLessThan(ROWS / 4);
+        assertThat(requested).isNotEmpty().allMatch(demand -> demand < Long.MAX_VALUE);
+
+        slowClient.dispose();
+        await().atMost(WAIT).untilTrue(cancelled);
+        assertThat(fetched.get()).isLessThan(ROWS / 4);
+    }
+
+    private WebTestClient.ResponseSpec history(String accept) {
+        WebTestClient.RequestHeadersSpec<?> request = webTestClient.get()
+                .uri("/v1/transaction/history?accountId={accountId}", ROUTING_ACCOUNT);
+        if (accept != null) {
+            request = request.header(HttpHeaders.ACCEPT, accept);
+        }
+        return request.exchange().expectStatus().isOk();
+    }
+
+    private void seed(int accountId, int rows, String description) {
+        Flux.range(0, (rows + 999) / 1_000)
+                .concatMap(chunk -> transactionRepository.insertAll(IntStream.range(chunk * 1_000, Math.min(rows, (chunk + 1) * 1_000))
+                        .mapToObj(i -> new Transaction(null, accountId, accountId + 1, description, 25.0,
+                                "TRANSFER", "TRANSACTION_COMPLETED", LocalDate.now()))
+                        .toList()))
+                .blockLast(WAIT);
+    }
+}
@@ -0,0 +1,98 @@
+package com.kenstudy.transaction_service.handler;
+
+import com.kenstudy.transaction_service.model.BatchTransferResult;
+import com.kenstudy.transaction_service.model.Transaction;
+import com.kenstudy.transaction_service.repository.TransactionRepository;
+import com.kenstudy.transaction_service.service.customImpl.AccountSequencer;
+import com.kenstudy.transaction_service.support.IntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+
+class TransferBatchEndpointTests extends IntegrationTest {
+    private static final int ROWS = 300;
+    private static final int FIRST_ACCOUNT = 10_000;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @MockitoSpyBean
+    private AccountSequencer accountSequencer;
+
+    @Test
+    void streamsOneResultPerRowAndInsertsOnlyTheValidOnes() {
+        // every 7th row is below the $2 minimum and every 11th names a customer that does not own the account
+        String body = IntStream.range(0, ROWS)
+                .mapToObj(TransferBatchEndpointTests::row)
+                .collect(Collectors.joining("\n"));
+
+        List<BatchTransferResult> results = webTestClient.post()
+                .uri("/v1/transaction/fund-transfer/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(BatchTransferResult.class)
+                .getResponseBody()
+                .collectList()
+                .block(Duration.ofSeconds(30));
+
+        assertThat(results).hasSize(ROWS);
+        Map<Long, BatchTransferResult> byIndex = results.stream()
+                .collect(Collectors.toMap(BatchTransferResult::getIndex, Function.identity()));
+        assertThat(byIndex).hasSize(ROWS);
+
+        for (int i = 0; i < ROWS; i++) {
+            BatchTransferResult result = byIndex.get((long) i);
+            assertThat(result.getAccountId()).isEqualTo(FIRST_ACCOUNT + i);
+            // each row's limit check waits its turn behind the sender's other transfers
+            verify(accountSequencer).submit(eq(FIRST_ACCOUNT + i), any());
+            if (invalid(i)) {
+                assertThat(result.getOutcome()).as("row %d", i).isEqualTo(BatchTransferResult.FAILED);
+                assertThat(result.getError()).isNotBlank();
+                assertThat(result.getTransaction()).isNull();
+                continue;
+            }
+            assertThat(result.getOutcome()).as("row %d", i).isEqualTo(BatchTransferResult.SUCCESS);
+            // the generated id must belong to this row, not to a neighbour in the same batched insert
+            Transaction stored = transactionRepository.findById(result.getTransaction().getTransactionId())
+                    .block(Duration.ofSeconds(5));
+            assertThat(stored.getAccountId()).isEqualTo(FIRST_ACCOUNT + i);
+            assertThat(stored.getAmount()).isEqualTo(amount(i));
+            assertThat(stored.getDescription()).isEqualTo("batch " + i);
+        }
+    }
+
+    private static String row(int i) {
+        int accountId = FIRST_ACCOUNT + i;
+        String json = transferJson(accountId, accountId + 1, amount(i), "batch " + i);
+        return i % 11 == 5 ? json.replace("\"customerId\":" + accountId, "\"customerId\":1") : json;
+    }
+
+    private static double amount(int i) {
+        return i % 7 == 3 ? 1.0 : 20.0 + i;
+    }
+
+    private static boolean invalid(int i) {
+        return i % 7 == 3 || i % 11 == 5;
+    }
+}
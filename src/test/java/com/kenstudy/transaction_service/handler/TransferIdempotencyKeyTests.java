@@ -0,0 +1,45 @@
+package com.kenstudy.transaction_service.handler;
+
+import com.kenstudy.transaction.TransactionResponseDTO;
+import com.kenstudy.transaction_service.support.IntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransferIdempotencyKeyTests extends IntegrationTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void aRepeatedKeyReplaysTheFirstTransfer() {
+        String body = transferJson(71_001, 71_002, 10.0, "idempotent");
+
+        TransactionResponseDTO first = transfer("client-key-1", body).expectStatus().isCreated()
+                .expectBody(TransactionResponseDTO.class).returnResult().getResponseBody();
+        TransactionResponseDTO replayed = transfer("client-key-1", body).expectStatus().isCreated()
+                .expectBody(TransactionResponseDTO.class).returnResult().getResponseBody();
+
+        assertThat(replayed.getTransactionId()).isEqualTo(first.getTransactionId());
+    }
+
+    @Test
+    void keysInTheKafkaNamespaceAreRefused() {
+        String body = transferJson(71_011, 71_012, 10.0, "reserved key");
+
+        transfer("kafka:transfer-requests:0:42", body).expectStatus().isBadRequest();
+        transfer("KAFKA:transfer-requests:0:42", body).expectStatus().isBadRequest();
+    }
+
+    private WebTestClient.ResponseSpec transfer(String key, String body) {
+        return webTestClient.post().uri("/v1/transaction/fund-transfer")
+                .header(TransactionHandler.IDEMPOTENCY_KEY_HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange();
+    }
+}
@@ -0,0 +1,199 @@
+package com.kenstudy.transaction_service.kafka;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kenstudy.transaction.TransactionResponseDTO;
+import com.kenstudy.transaction.TransferRequestDTO;
+import com.kenstudy.transaction_service.exception.DownstreamServerException;
+import com.kenstudy.transaction_service.exception.IdempotencyConflictException;
+import com.kenstudy.transaction_service.exception.ResourceNotFoundException;
+import com.kenstudy.transaction_service.exception.TransactionNotFoundException;
+import com.kenstudy.transaction_service.service.TransactionService;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.r2dbc.url=r2dbc:h2:mem:///kafka;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "spring.sql.init.mode=always",
+        "transaction.outbox.poll-interval=1h",
+        "transaction.kafka.enabled=true"
+})
+@EmbeddedKafka(partitions = 3, topics = {"transfer-requests", "transfer-results"})
+class TransferRequestListenerTests {
+    private static final Duration DEADLINE = Duration.ofSeconds(60);
+    private static final int FIRST_ORDER = 1_000_000;
+    private static final int FIRST_RETRY = 2_000_000;
+
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockitoBean
+    private TransactionService transactionService;
+
+    // records are told apart by recipientId, which failed outcomes carry too
+    private final Map<Integer, String> outcomes = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicInteger> calls = new ConcurrentHashMap<>();
+    private Consumer<String, String> results;
+
+    @BeforeEach
+    void readResults() {
+        results = new DefaultKafkaConsumerFactory<>(
+                KafkaTestUtils.consumerProps("results-" + UUID.randomUUID(), "false", broker),
+                new StringDeserializer(), new StringDeserializer()).createConsumer();
+        broker.consumeFromAnEmbeddedTopic(results, "transfer-results");
+    }
+
+    @AfterEach
+    void closeResults() {
+        results.close();
+    }
+
+    @Test
+    void processesBatchesInOrderPerAccountAndPublishesOutcomes() {
+        int accounts = 20;
+        int records = 2000;
+        Map<Integer, List<Integer>> seenByAccount = new ConcurrentHashMap<>();
+        when(transactionService.transferFund(any(), any())).thenAnswer(invocation -> {
+            TransferRequestDTO req = invocation.getArgument(0);
+            seenByAccount.computeIfAbsent(req.getAccountId(), id -> new CopyOnWriteArrayList<>())
+                    .add(req.getRecipientId());
+            return called(invocation, req.getAmount() > 10000
+                    ? Mono.error(new TransactionNotFoundException("Transfer must not exceed $10,000.00"))
+                    : Mono.just(response(req)).delayElement(Duration.ofMillis(1)));
+        });
+
+        for (int i = 0; i < records; i++) {
+            // every 100th record is rejected by the service
+            send(100 + i % accounts, FIRST_ORDER + i, i % 100 == 99 ? 20000.0 : 50.0);
+        }
+
+        awaitOutcomes(FIRST_ORDER, records);
+        assertThat(outcomes.values().stream().filter("FAILED"::equals)).hasSize(records / 100);
+        // a rejection is final: published once and never retried
+        assertThat(calls.values()).allMatch(count -> count.get() == 1);
+        assertThat(seenByAccount).hasSize(accounts);
+        seenByAccount.values().forEach(order -> assertThat(order).isSorted());
+    }
+
+    @Test
+    void retriesOnlyTheTransientFailuresWithoutRepeatingCompletedTransfers() {
+        int records = 300;
+        int accountOutage = FIRST_RETRY + 40;
+        int paymentOutage = FIRST_RETRY + 150;
+        int rejected = FIRST_RETRY + 260;
+        int conflicting = FIRST_RETRY + 280;
+        when(transactionService.transferFund(any(), any())).thenAnswer(invocation -> {
+            TransferRequestDTO req = invocation.getArgument(0);
+            boolean firstCall = !calls.containsKey(req.getRecipientId());
+            Mono<TransactionResponseDTO> result = Mono.just(response(req));
+            if (req.getRecipientId() == accountOutage && firstCall) {
+                result = Mono.error(new ResourceNotFoundException("Account server error: 503"));
+            } else if (req.getRecipientId() == paymentOutage && firstCall) {
+                result = Mono.error(new DownstreamServerException("Server error (502 BAD_GATEWAY)"));
+            } else if (req.getRecipientId() == rejected) {
+                result = Mono.error(new TransactionNotFoundException("Sender details not found"));
+            } else if (req.getRecipientId() == conflicting) {
+                result = Mono.error(new IdempotencyConflictException("Request with Idempotency-Key was interrupted, please retry"));
+            }
+            return called(invocation, result);
+        });
+
+        for (int i = 0; i < records; i++) {
+            send(500 + i % 30, FIRST_RETRY + i, 50.0);
+        }
+
+        awaitOutcomes(FIRST_RETRY, records);
+        // the 5xx failures were redelivered and succeeded; the validation failure was published as FAILED
+        assertThat(outcomes.get(accountOutage)).isEqualTo("SUCCESS");
+        assertThat(outcomes.get(paymentOutage)).isEqualTo("SUCCESS");
+        assertThat(outcomes.get(rejected)).isEqualTo("FAILED");
+        // an idempotency conflict is final as well, not redelivered forever
+        assertThat(outcomes.get(conflicting)).isEqualTo("FAILED");
+        assertThat(calls.get(accountOutage)).hasValue(2);
+        assertThat(calls.get(paymentOutage)).hasValue(2);
+        // every other record, including those redelivered after a failure at an earlier offset, ran once
+        calls.entrySet().stream()
+                .filter(entry -> entry.getKey() != accountOutage && entry.getKey() != paymentOutage)
+                .forEach(entry -> assertThat(entry.getValue()).as("recipient %d", entry.getKey()).hasValue(1));
+    }
+
+    // counts the call and, like the real service, stores the idempotent response with the transfer
+    private Mono<TransactionResponseDTO> called(InvocationOnMock invocation, Mono<TransactionResponseDTO> result) {
+        TransferRequestDTO req = invocation.getArgument(0);
+        Function<TransactionResponseDTO, Mono<Void>> complete = invocation.getArgument(1);
+        calls.computeIfAbsent(req.getRecipientId(), recipientId -> new AtomicInteger()).incrementAndGet();
+        return result.flatMap(response -> complete.apply(response).thenReturn(response));
+    }
+
+    private void send(int accountId, int recipientId, double amount) {
+        TransferRequestDTO req = new TransferRequestDTO();
+        req.setAccountId(accountId);
+        req.setRecipientId(recipientId);
+        req.setCustomerId(accountId);
+        req.setDescription("kafka");
+        req.setAmount(amount);
+        kafkaTemplate.send("transfer-requests", String.valueOf(accountId), req);
+    }
+
+    // results are at-least-once: a redelivered record publishes its replayed outcome again
+    private void awaitOutcomes(int firstRecipient, int expected) {
+        kafkaTemplate.flush();
+        await().atMost(DEADLINE).until(() -> {
+            for (ConsumerRecord<String, String> rec : results.poll(Duration.ofMillis(200))) {
+                JsonNode result = objectMapper.readTree(rec.value());
+                int recipientId = result.get("recipientId").asInt();
+                if (recipientId >= firstRecipient && recipientId < firstRecipient + expected) {
+                    outcomes.put(recipientId, result.get("outcome").asText());
+                }
+            }
+            return outcomes.size() >= expected;
+        });
+        assertThat(outcomes).hasSize(expected);
+    }
+
+    private static TransactionResponseDTO response(TransferRequestDTO req) {
+        TransactionResponseDTO res = new TransactionResponseDTO();
+        res.setAccountId(req.getAccountId());
+        res.setRecipientId(req.getRecipientId());
+        res.setAmount(req.getAmount());
+        res.setDescription(req.getDescription());
+        return res;
+    }
+}
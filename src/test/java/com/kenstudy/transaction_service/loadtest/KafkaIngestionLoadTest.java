@@ -0,0 +1,157 @@
+package com.kenstudy.transaction_service.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kenstudy.transaction.TransferRequestDTO;
+import com.kenstudy.transaction_service.support.DownstreamStub;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.MediaType;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Throughput of the Kafka ingestion path against the HTTP path for the same transfers, both with the
+ * {@link DownstreamStub}s and H2 used by {@link TransferLoadTest}. The HTTP side keeps as many requests
+ * in flight as the listener processes concurrently. Run with {@code ./mvnw -Ploadtest test
+ * -Dtest=KafkaIngestionLoadTest -Dloadtest.kafka.records=20000}; both rates and their ratio are printed
+ * and written to {@code target/loadtest/kafka-ingestion.txt} for the load job to keep.
+ * <p>
+ * Knobs (system properties): {@code loadtest.kafka.records}, {@code loadtest.kafka.min-ratio} (the
+ * Kafka path must reach at least this fraction of the HTTP throughput, 0.5 by default).
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.r2dbc.url=r2dbc:h2:mem:///kafka-loadtest;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "spring.r2dbc.pool.max-size=32",
+        "spring.sql.init.mode=always",
+        "transaction.limits.enabled=false",
+        "transaction.admission.transfer.enabled=false",
+        "transaction.admission.read.enabled=false",
+        "transaction.outbox.poll-interval=50ms",
+        "transaction.kafka.enabled=true",
+        "transaction.kafka.concurrency=16",
+        "logging.level.com.kenstudy.transaction_service=WARN"
+})
+@EmbeddedKafka(partitions = 3, topics = {"transfer-requests", "transfer-results"})
+class KafkaIngestionLoadTest {
+    private static final int RECORDS = Integer.getInteger("loadtest.kafka.records", 5_000);
+    private static final double MIN_RATIO = Double.parseDouble(System.getProperty("loadtest.kafka.min-ratio", "0.5"));
+    private static final int CONCURRENCY = 16;
+    private static final int ACCOUNTS = 1_000;
+    private static final Path REPORT = Path.of("target", "loadtest", "kafka-ingestion.txt");
+
+    private static final DownstreamStub ACCOUNT = DownstreamStub.account(Duration.ofMillis(5), Duration.ofMillis(5), 0);
+    private static final DownstreamStub PAYMENT = DownstreamStub.payment(Duration.ofMillis(20), Duration.ofMillis(20), 0);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @DynamicPropertySource
+    static void downstreams(DynamicPropertyRegistry registry) {
+        registry.add("transaction.client.account.base-url", ACCOUNT::baseUrl);
+        registry.add("transaction.client.payment.base-url", PAYMENT::baseUrl);
+    }
+
+    @AfterAll
+    static void stopStubs() {
+        ACCOUNT.close();
+        PAYMENT.close();
+    }
+
+    @Test
+    void kafkaIngestionKeepsUpWithTheHttpPath() throws IOException {
+        WebClient client = WebClient.builder().baseUrl("http://localhost:" + port + "/v1/transaction").build();
+
+        long httpStart = System.nanoTime();
+        Map<Integer, Long> httpStatuses = new ConcurrentHashMap<>();
+        Flux.range(0, RECORDS)
+                .flatMap(i -> client.post().uri("/fund-transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(request(i))
+                        .exchangeToMono(res -> res.releaseBody().thenReturn(res.statusCode().value()))
+                        .doOnNext(status -> httpStatuses.merge(status, 1L, Long::sum)), CONCURRENCY)
+                .blockLast(Duration.ofMinutes(5));
+        double httpRate = RECORDS / ((System.nanoTime() - httpStart) / 1e9);
+
+        Consumer<String, String> results = new DefaultKafkaConsumerFactory<>(
+                KafkaTestUtils.consumerProps("kafka-loadtest", "false", broker),
+                new StringDeserializer(), new StringDeserializer()).createConsumer();
+        broker.consumeFromAnEmbeddedTopic(results, "transfer-results");
+        Map<String, Long> kafkaOutcomes = new ConcurrentHashMap<>();
+        long kafkaStart = System.nanoTime();
+        for (int i = 0; i < RECORDS; i++) {
+            TransferRequestDTO req = request(i);
+            kafkaTemplate.send("transfer-requests", String.valueOf(req.getAccountId()), req);
+        }
+        kafkaTemplate.flush();
+        await().atMost(Duration.ofMinutes(5)).until(() -> {
+            for (ConsumerRecord<String, String> rec : results.poll(Duration.ofMillis(200))) {
+                JsonNode result = objectMapper.readTree(rec.value());
+                kafkaOutcomes.merge(result.get("outcome").asText(), 1L, Long::sum);
+            }
+            return kafkaOutcomes.values().stream().mapToLong(Long::longValue).sum() >= RECORDS;
+        });
+        double kafkaRate = RECORDS / ((System.nanoTime() - kafkaStart) / 1e9);
+        results.close();
+
+        String report = String.format("HTTP  POST /fund-transfer: %d transfers at %.0f/s, statuses %s%n", RECORDS, httpRate, httpStatuses)
+                + String.format("Kafka transfer-requests:   %d transfers at %.0f/s, outcomes %s%n", RECORDS, kafkaRate, kafkaOutcomes)
+                + String.format("Kafka/HTTP throughput ratio: %.2f (required %.2f)%n", kafkaRate / httpRate, MIN_RATIO);
+        System.out.print(report);
+        Files.createDirectories(REPORT.getParent());
+        Files.writeString(REPORT, report);
+
+        assertThat(httpStatuses).containsOnlyKeys(201);
+        assertThat(kafkaOutcomes).containsOnlyKeys("SUCCESS");
+        assertThat(kafkaOutcomes.get("SUCCESS")).isEqualTo((long) RECORDS);
+        assertThat(kafkaRate).as("Kafka records/s against HTTP requests/s").isGreaterThanOrEqualTo(httpRate * MIN_RATIO);
+    }
+
+    private static TransferRequestDTO request(int i) {
+        int accountId = i % ACCOUNTS + 1;
+        TransferRequestDTO req = new TransferRequestDTO();
+        req.setAccountId(accountId);
+        req.setCustomerId(accountId);
+        req.setRecipientId(accountId % ACCOUNTS + 1);
+        req.setAmount(25.0);
+        req.setDescription("ingestion " + i);
+        return req;
+    }
+}
@@ -0,0 +1,92 @@
+package com.kenstudy.transaction_service.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Open-model load: requests are started on a fixed schedule regardless of how many are still
+ * outstanding, and latency is measured from each request's intended start time so a stalled
+ * server cannot hide its queueing delay (no coordinated omission).
+ */
+final class OpenModelLoad {
+
+    private OpenModelLoad() {
+    }
+
+    /**
+     * @param request issues request number {@code i} and emits the HTTP status it got back
+     */
+    static Report run(String name, int ratePerSecond, Duration duration, LongFunction<Mono<Integer>> request) {
+        long total = ratePerSecond * duration.toSeconds();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        Histogram latencies = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(2), 3);
+        Map<String, AtomicLong> outcomes = new ConcurrentHashMap<>();
+        AtomicLong issued = new AtomicLong();
+        AtomicLong lastCompletion = new AtomicLong();
+        long start = System.nanoTime();
+
+        Flux.interval(Duration.ofMillis(1))
+                .onBackpressureDrop()
+                .takeUntil(tick -> issued.get() >= total)
+                .concatMapIterable(tick -> {
+                    long due = Math.min(total, (System.nanoTime() - start) / intervalNanos + 1);
+                    List<Long> batch = new ArrayList<>();
+                    while (issued.get() < due) {
+                        batch.add(issued.getAndIncrement());
+                    }
+                    return batch;
+                })
+                .flatMap(i -> {
+                    long intendedStart = start + i * intervalNanos;
+                    return request.apply(i)
+                            .map(String::valueOf)
+                            .onErrorResume(ex -> Mono.just(ex.getClass().getSimpleName()))
+                            .doOnNext(outcome -> {
+                                long now = System.nanoTime();
+                                latencies.recordValue(Math.min(now - intendedStart, latencies.getHighestTrackableValue()));
+                                outcomes.computeIfAbsent(outcome, key -> new AtomicLong()).incrementAndGet();
+                                lastCompletion.accumulateAndGet(now, Math::max);
+                            });
+                }, Integer.MAX_VALUE)
+                .blockLast(duration.plusMinutes(2));
+
+        Map<String, Long> byOutcome = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> byOutcome.put(outcome, count.get()));
+        return new Report(name, ratePerSecond, latencies.getTotalCount(), byOutcome,
+                (lastCompletion.get() - start) / 1e9, latencies);
+    }
+
+    record Report(String name, int targetRate, long completed, Map<String, Long> outcomes, double seconds,
+                  Histogram latencies) {
+
+        long errors(int... okStatuses) {
+            return outcomes.entrySet().stream()
+                    .filter(entry -> Arrays.stream(okStatuses).mapToObj(String::valueOf).noneMatch(entry.getKey()::equals))
+                    .mapToLong(Map.Entry::getValue)
+                    .sum();
+        }
+
+        String format() {
+            return String.format("%-26s target %5d/s  achieved %8.1f/s  n=%-7d p50 %7.2fms  p99 %7.2fms  p99.9 %7.2fms  max %7.2fms  outcomes %s",
+                    name, targetRate, completed / seconds, completed,
+                    millis(0.50), millis(0.99), millis(0.999), latencies.getMaxValue() / 1e6, outcomes);
+        }
+
+        private double millis(double percentile) {
+            return latencies.getValueAtPercentile(percentile * 100) / 1e6;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.kenstudy.transaction_service.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.kenstudy.transaction_service.support.DownstreamStub;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Capacity baseline for the transfer path. The account and payment services are replaced by
+ * {@link DownstreamStub}s and MySQL by an in-memory H2 database in MySQL mode, so the numbers
+ * describe this service alone. Excluded from the normal build; run with
+ * {@code ./mvnw -Ploadtest test -Dloadtest.rate=500 -Dloadtest.duration=60s}.
+ * <p>
+ * Knobs (system properties): {@code loadtest.rate}, {@code loadtest.duration}, {@code loadtest.accounts},
+ * {@code loadtest.account.latency|jitter|error-rate}, {@code loadtest.payment.latency|jitter|error-rate},
+ * {@code loadtest.admission} (admission control is off unless this is true).
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///loadtest;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "spring.r2dbc.pool.max-size=32",
+        "spring.sql.init.mode=always",
+        "transaction.limits.enabled=false",
+        "transaction.admission.transfer.enabled=${loadtest.admission:false}",
+        "transaction.admission.read.enabled=${loadtest.admission:false}",
+        "transaction.outbox.poll-interval=50ms",
+        "logging.level.com.kenstudy.transaction_service=WARN"
+})
+class TransferLoadTest {
+    private static final int RATE = Integer.getInteger("loadtest.rate", 200);
+    private static final Duration DURATION = duration("loadtest.duration", "20s");
+    private static final int ACCOUNTS = Integer.getInteger("loadtest.accounts", 10_000);
+
+    private static final DownstreamStub ACCOUNT = DownstreamStub.account(
+            duration("loadtest.account.latency", "5ms"), duration("loadtest.account.jitter", "5ms"),
+            rate("loadtest.account.error-rate"));
+    private static final DownstreamStub PAYMENT = DownstreamStub.payment(
+            duration("loadtest.payment.latency", "20ms"), duration("loadtest.payment.jitter", "20ms"),
+            rate("loadtest.payment.error-rate"));
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void downstreams(DynamicPropertyRegistry registry) {
+        registry.add("transaction.client.account.base-url", ACCOUNT::baseUrl);
+        registry.add("transaction.client.payment.base-url", PAYMENT::baseUrl);
+    }
+
+    @AfterAll
+    static void stopStubs() {
+        ACCOUNT.close();
+        PAYMENT.close();
+    }
+
+    @Test
+    void transferAndLookupBaseline() {
+        ConnectionProvider pool = ConnectionProvider.builder("loadtest")
+                .maxConnections(2_000)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        WebClient client = WebClient.builder()
+                .baseUrl("http://localhost:" + port + "/v1/transaction")
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(pool)))
+                .build();
+        CopyOnWriteArrayList<Integer> created = new CopyOnWriteArrayList<>();
+
+        // warm up connection pools, JIT and the H2 schema before measuring
+        OpenModelLoad.run("warm-up", Math.max(1, RATE / 4), Duration.ofSeconds(5), i -> transfer(client, created));
+        created.clear();
+
+        OpenModelLoad.Report transfers = OpenModelLoad.run("POST /fund-transfer", RATE, DURATION,
+                i -> transfer(client, created));
+        assertThat(created).as("no transfer was accepted").isNotEmpty();
+        OpenModelLoad.Report lookups = OpenModelLoad.run("GET /{transactId}", RATE, DURATION,
+                i -> client.get().uri("/{transactId}", created.get((int) (i % created.size())))
+                        .exchangeToMono(res -> res.releaseBody().thenReturn(res.statusCode().value())));
+        pool.disposeLater().block();
+
+        System.out.println(transfers.format());
+        System.out.println(lookups.format());
+        System.out.printf("account stub: %d requests, %d injected errors; payment stub: %d requests, %d injected errors%n",
+                ACCOUNT.requests(), ACCOUNT.errors(), PAYMENT.requests(), PAYMENT.errors());
+
+        assertThat(transfers.completed()).isEqualTo(RATE * DURATION.toSeconds());
+        assertThat(lookups.errors(200)).isZero();
+    }
+
+    private static Mono<Integer> transfer(WebClient client, CopyOnWriteArrayList<Integer> created) {
+        int accountId = ThreadLocalRandom.current().nextInt(1, ACCOUNTS + 1);
+        int recipientId = accountId % ACCOUNTS + 1;
+        String body = "{\"accountId\":" + accountId + ",\"customerId\":" + accountId + ",\"recipientId\":" + recipientId
+                + ",\"amount\":25.0,\"description\":\"load test\"}";
+        return client.post().uri("/fund-transfer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchangeToMono(res -> res.statusCode().value() == 201
+                        ? res.bodyToMono(JsonNode.class)
+                                .doOnNext(json -> created.add(json.get("transactionId").asInt()))
+                                .thenReturn(201)
+                        : res.releaseBody().thenReturn(res.statusCode().value()));
+    }
+
+    private static Duration duration(String property, String defaultValue) {
+        return DurationStyle.detectAndParse(System.getProperty(property, defaultValue));
+    }
+
+    private static double rate(String property) {
+        return Double.parseDouble(System.getProperty(property, "0"));
+    }
+}
@@ -0,0 +1,64 @@
+package com.kenstudy.transaction_service.repository;
+
+import com.kenstudy.transaction_service.model.Transaction;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataR2dbcTest(properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///batch-insert;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "spring.sql.init.mode=always"
+})
+class TransactionBatchRepositoryTests {
+    private static final LocalDate DAY = LocalDate.of(2025, 6, 1);
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Test
+    void generatedIdsFollowTheInputRows() {
+        List<Transaction> rows = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            rows.add(new Transaction(null, 5_000 + i, 6_000 + i, "row " + i, 10.0 + i,
+                    "TRANSFER", "TRANSACTION_CREATED", DAY));
+        }
+
+        List<Transaction> inserted = transactionRepository.insertAll(rows).collectList().block(Duration.ofSeconds(30));
+
+        assertThat(inserted).hasSize(rows.size());
+        assertThat(inserted).extracting(Transaction::getId).doesNotContainNull().doesNotHaveDuplicates();
+        for (int i = 0; i < rows.size(); i++) {
+            Transaction stored = transactionRepository.findById(inserted.get(i).getId()).block(Duration.ofSeconds(5));
+            assertThat(stored.getAccountId()).isEqualTo(5_000 + i);
+            assertThat(stored.getRecipientId()).isEqualTo(6_000 + i);
+            assertThat(stored.getDescription()).isEqualTo("row " + i);
+            assertThat(stored.getAmount()).isEqualTo(10.0 + i);
+        }
+    }
+
+    @Test
+    void nullColumnsAreInsertedAsNull() {
+        Transaction row = new Transaction(null, 7_001, 7_002, null, 25.0, "TRANSFER", "TRANSACTION_CREATED", DAY);
+
+        StepVerifier.create(transactionRepository.insertAll(List.of(row))
+                        .flatMap(inserted -> transactionRepository.findById(inserted.getId())))
+                .assertNext(stored -> assertThat(stored.getDescription()).isNull())
+                .verifyComplete();
+    }
+
+    @Test
+    void emptyInputDoesNotTouchTheDatabase() {
+        StepVerifier.create(transactionRepository.insertAll(List.of()))
+                .verifyComplete();
+    }
+}
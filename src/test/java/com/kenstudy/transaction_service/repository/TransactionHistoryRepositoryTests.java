@@ -0,0 +1,86 @@
+package com.kenstudy.transaction_service.repository;
+
+import com.kenstudy.transaction_service.model.Transaction;
+import com.kenstudy.transaction_service.model.TransactionHistoryQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataR2dbcTest(properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///history;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "spring.sql.init.mode=always"
+})
+class TransactionHistoryRepositoryTests {
+    private static final int ACCOUNT_ID = 42;
+    private static final int ROWS = 20_000;
+    private static final int CHUNK = 1_000;
+    private static final LocalDate START = LocalDate.of(2025, 1, 1);
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @BeforeEach
+    void seed() {
+        if (transactionRepository.count().block() > 0) {
+            return;
+        }
+        String description = "x".repeat(200);
+        Flux.range(0, ROWS / CHUNK)
+                .concatMap(chunk -> {
+                    List<Transaction> rows = new ArrayList<>(CHUNK);
+                    for (int i = 0; i < CHUNK; i++) {
+                        int n = chunk * CHUNK + i;
+                        rows.add(new Transaction(null, n % 10 == 0 ? ACCOUNT_ID + 1 : ACCOUNT_ID, 7, description, 25.0,
+                                "TRANSFER", n % 3 == 0 ? "TRANSACTION_COMPLETED" : "TRANSACTION_CREATED",
+                                START.plusDays(n % 365)));
+                    }
+                    return transactionRepository.insertAll(rows);
+                })
+                .then()
+                .block(Duration.ofMinutes(5));
+    }
+
+    @Test
+    void keysetPagesAreOrderedAndDisjoint() {
+        TransactionHistoryQuery query = TransactionHistoryQuery.builder()
+                .accountId(ACCOUNT_ID)
+                .status("TRANSACTION_COMPLETED")
+                .fromDate(START.plusDays(10))
+                .toDate(START.plusDays(20))
+                .limit(100)
+                .build();
+
+        List<Transaction> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            query.setCursor(cursor);
+            List<Transaction> page = transactionRepository.findHistory(query).collectList().block();
+            seen.addAll(page);
+            cursor = page.size() < 100 ? null : TransactionHistoryRepositoryImpl.encodeCursor(page.get(page.size() - 1));
+        } while (cursor != null);
+
+        long expected = transactionRepository.findAll()
+                .filter(t -> t.getAccountId() == ACCOUNT_ID && "TRANSACTION_COMPLETED".equals(t.getTransactionStatus()))
+                .filter(t -> !t.getCreatedDate().isBefore(START.plusDays(10)) && !t.getCreatedDate().isAfter(START.plusDays(20)))
+                .count().block();
+        assertThat(seen).hasSize((int) expected);
+        assertThat(seen).extracting(Transaction::getId).doesNotHaveDuplicates();
+        for (int i = 1; i < seen.size(); i++) {
+            Transaction prev = seen.get(i - 1);
+            Transaction next = seen.get(i);
+            assertThat(prev.getCreatedDate().isAfter(next.getCreatedDate())
+                    || (prev.getCreatedDate().equals(next.getCreatedDate()) && prev.getId() > next.getId())).isTrue();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.kenstudy.transaction_service.repository;
+
+import com.kenstudy.transaction_service.model.Transaction;
+import com.kenstudy.transaction_service.model.TransactionState;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataR2dbcTest(properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///status-cas;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "spring.sql.init.mode=always"
+})
+class TransactionStatusRepositoryTests {
+    private static final LocalDate DAY = LocalDate.of(2025, 6, 1);
+    private static final LocalDate NEXT_DAY = DAY.plusDays(1);
+    private static final Duration WAIT = Duration.ofSeconds(10);
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Test
+    void movesOnlyTheRowsStillInTheExpectedState() {
+        Transaction pending = row(TransactionState.PENDING);
+        Transaction failed = row(TransactionState.FAILED);
+
+        Integer updated = transactionRepository.compareAndSetStatus(List.of(pending.getId(), failed.getId()),
+                TransactionState.PENDING.status(), TransactionState.COMPLETED.status(), NEXT_DAY).block(WAIT);
+
+        assertThat(updated).isEqualTo(1);
+        Transaction moved = transactionRepository.findById(pending.getId()).block(WAIT);
+        assertThat(moved.getTransactionStatus()).isEqualTo(TransactionState.COMPLETED.status());
+        assertThat(moved.getCreatedDate()).isEqualTo(NEXT_DAY);
+        Transaction untouched = transactionRepository.findById(failed.getId()).block(WAIT);
+        assertThat(untouched.getTransactionStatus()).isEqualTo(TransactionState.FAILED.status());
+        assertThat(untouched.getCreatedDate()).isEqualTo(DAY);
+    }
+
+    @Test
+    void anOutOfOrderTransitionChangesNothing() {
+        Transaction completed = row(TransactionState.COMPLETED);
+
+        // a late CREATED -> PENDING from a relay that claimed the row before it was delivered
+        Integer updated = transactionRepository.compareAndSetStatus(List.of(completed.getId()),
+                TransactionState.CREATED.status(), TransactionState.PENDING.status(), NEXT_DAY).block(WAIT);
+
+        assertThat(updated).isZero();
+        assertThat(transactionRepository.findById(completed.getId()).block(WAIT).getTransactionStatus())
+                .isEqualTo(TransactionState.COMPLETED.status());
+    }
+
+    @Test
+    void noIdsTouchNothing() {
+        assertThat(transactionRepository.compareAndSetStatus(List.of(), TransactionState.CREATED.status(),
+                TransactionState.PENDING.status(), NEXT_DAY).block(WAIT)).isZero();
+    }
+
+    private Transaction row(TransactionState state) {
+        return transactionRepository.save(new Transaction(null, 8_001, 8_002, "cas", 25.0, "TRANSFER",
+                state.status(), DAY)).block(WAIT);
+    }
+}
@@ -0,0 +1,75 @@
+package com.kenstudy.transaction_service.service.customImpl;
+
+import com.kenstudy.transaction_service.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccountSequencerTests {
+    private final AccountSequencer sequencer = new AccountSequencer(new SimpleMeterRegistry(), true, 4);
+
+    @Test
+    void runsOneAccountInArrivalOrderWithoutOverlap() {
+        AtomicInteger running = new AtomicInteger();
+        List<Integer> order = new CopyOnWriteArrayList<>();
+
+        Flux.range(0, 5)
+                .flatMap(i -> sequencer.submit(7, () -> Mono.fromRunnable(() -> assertThat(running.incrementAndGet()).isEqualTo(1))
+                        .then(Mono.delay(Duration.ofMillis(10)))
+                        .doOnNext(tick -> {
+                            order.add(i);
+                            running.decrementAndGet();
+                        })
+                        .thenReturn(i)))
+                .blockLast(Duration.ofSeconds(5));
+
+        assertThat(order).containsExactly(0, 1, 2, 3, 4);
+        assertThat(sequencer.queued()).isZero();
+    }
+
+    @Test
+    void differentAccountsRunInParallel() {
+        Sinks.Empty<Void> gate = Sinks.empty();
+        AtomicInteger started = new AtomicInteger();
+
+        Flux.range(1, 3)
+                .flatMap(account -> sequencer.submit(account, () -> Mono.fromRunnable(started::incrementAndGet)
+                        .then(gate.asMono())
+                        .thenReturn(account)))
+                .subscribe();
+
+        // all three started although none has finished
+        assertThat(started).hasValue(3);
+        gate.tryEmitEmpty();
+    }
+
+    @Test
+    void rejectsOnceTheAccountQueueIsFull() {
+        Sinks.Empty<Void> gate = Sinks.empty();
+        for (int i = 0; i < 5; i++) { // one running, four queued
+            sequencer.submit(9, () -> gate.asMono().thenReturn(1)).subscribe();
+        }
+        assertThat(sequencer.queued()).isEqualTo(4);
+
+        StepVerifier.create(sequencer.submit(9, () -> Mono.just(1)))
+                .expectError(TooManyRequestsException.class)
+                .verify(Duration.ofSeconds(1));
+
+        // another account is unaffected
+        StepVerifier.create(sequencer.submit(10, () -> Mono.just(2)))
+                .expectNext(2)
+                .verifyComplete();
+        gate.tryEmitEmpty();
+        assertThat(sequencer.queued()).isZero();
+    }
+}
@@ -0,0 +1,228 @@
+package com.kenstudy.transaction_service.service.customImpl;
+
+import com.kenstudy.transaction_service.exception.ServiceOverloadedException;
+import com.kenstudy.transaction_service.exception.VelocityLimitExceededException;
+import com.kenstudy.transaction_service.model.TransactionState;
+import io.r2dbc.spi.ConnectionFactories;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AccountVelocityLimiterTests {
+    private static final int THREADS = 32;
+    private static final Instant NOW = Instant.parse("2025-06-01T12:30:00Z");
+
+    @Test
+    void rejectsOnceTheHourlyCountIsReachedAndReleasesOnFailure() {
+        AccountVelocityLimiter limiter = limiter(Clock.fixed(NOW, ZoneId.of("UTC")), 1_000_000, 3, 1_000_000, 100);
+
+        limiter.reserve(1, 10);
+        limiter.reserve(1, 10);
+        AccountVelocityLimiter.Reservation third = limiter.reserve(1, 10);
+        assertThatThrownBy(() -> limiter.reserve(1, 10))
+                .isInstanceOf(VelocityLimitExceededException.class)
+                .hasMessageContaining("hourly transfer count");
+
+        limiter.release(third);
+        limiter.reserve(1, 10);
+        // other accounts are unaffected
+        limiter.reserve(2, 10);
+    }
+
+    @Test
+    void hourlyWindowSlidesWhileDailyWindowStillCounts() {
+        MutableClock clock = new MutableClock(NOW);
+        AccountVelocityLimiter limiter = limiter(clock, 100, 100, 150, 100);
+
+        limiter.reserve(1, 100);
+        assertThatThrownBy(() -> limiter.reserve(1, 1)).hasMessageContaining("hourly amount");
+
+        clock.advance(Duration.ofMinutes(61));
+        limiter.reserve(1, 50);
+        assertThatThrownBy(() -> limiter.reserve(1, 1)).hasMessageContaining("daily amount");
+
+        clock.advance(Duration.ofHours(24));
+        limiter.reserve(1, 100);
+    }
+
+    @Test
+    void contendedAccountNeverExceedsItsLimit() throws Exception {
+        int limit = 50_000;
+        AccountVelocityLimiter limiter = limiter(Clock.fixed(NOW, ZoneId.of("UTC")), 1e12, limit, 1e12, limit);
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        hammer(() -> {
+            try {
+                limiter.reserve(7, 2.5);
+                accepted.incrementAndGet();
+                return true;
+            } catch (VelocityLimitExceededException ex) {
+                rejected.incrementAndGet();
+                return false;
+            }
+        });
+
+        assertThat(accepted.get()).isEqualTo(limit);
+        // every thread stops at its first rejection, so each saw exactly one
+        assertThat(rejected.get()).isEqualTo(THREADS);
+    }
+
+    @Test
+    void reserveAndReleaseUnderContentionBalancesOut() throws Exception {
+        AccountVelocityLimiter limiter = limiter(Clock.fixed(NOW, ZoneId.of("UTC")), 1e12, 1_000, 1e12, 1_000);
+        AtomicInteger remaining = new AtomicInteger(400_000);
+
+        hammer(() -> {
+            if (remaining.decrementAndGet() < 0) {
+                return false;
+            }
+            limiter.release(limiter.reserve(7, 1));
+            return true;
+        });
+
+        // every reservation was given back, so the full hourly count is available again
+        for (int i = 0; i < 1_000; i++) {
+            limiter.reserve(7, 1);
+        }
+        assertThatThrownBy(() -> limiter.reserve(7, 1)).hasMessageContaining("hourly transfer count");
+    }
+
+    @Test
+    void rebuildRestoresTheLastTwentyFourHoursAtTheirActualTimes() {
+        DatabaseClient db = outboxDatabase("velocity");
+        LocalDateTime now = LocalDateTime.ofInstant(NOW, ZoneId.of("UTC"));
+        accepted(db, 1, 1, 100, TransactionState.COMPLETED, now.minusMinutes(90));
+        accepted(db, 2, 1, 100, TransactionState.PENDING, now.minusHours(23));
+        // older than a day, or failed: not counted
+        accepted(db, 3, 1, 100, TransactionState.COMPLETED, now.minusHours(25));
+        accepted(db, 4, 1, 100, TransactionState.FAILED, now.minusMinutes(5));
+        // within the last hour: counts towards the hourly window too
+        accepted(db, 5, 2, 120, TransactionState.COMPLETED, now.minusMinutes(10));
+
+        AccountVelocityLimiter limiter = new AccountVelocityLimiter(db, Clock.fixed(NOW, ZoneId.of("UTC")), true,
+                150, 100, 250, 100);
+        limiter.rebuild();
+
+        assertThatThrownBy(() -> limiter.reserve(2, 40)).hasMessageContaining("hourly amount");
+        assertThatThrownBy(() -> limiter.reserve(1, 51)).hasMessageContaining("daily amount");
+        limiter.reserve(1, 50);
+    }
+
+    @Test
+    void failsClosedUntilTheWindowsAreRestored() {
+        DatabaseClient db = outboxDatabase("velocity-restoring");
+        accepted(db, 1, 1, 100, TransactionState.COMPLETED, LocalDateTime.now().minusMinutes(5));
+        AccountVelocityLimiter limiter = new AccountVelocityLimiter(db, true, 150, 100, 250, 100, Duration.ofSeconds(10));
+
+        assertThatThrownBy(() -> limiter.reserve(1, 10))
+                .isInstanceOf(ServiceOverloadedException.class)
+                .hasMessageContaining("being restored");
+
+        limiter.rebuild();
+        limiter.reserve(1, 50);
+        assertThatThrownBy(() -> limiter.reserve(1, 1)).isInstanceOf(VelocityLimitExceededException.class);
+    }
+
+    @Test
+    void aDisabledLimiterHasNothingToRestore() {
+        AccountVelocityLimiter limiter = new AccountVelocityLimiter(null, false, 1, 1, 1, 1, Duration.ofSeconds(10));
+
+        limiter.reserve(1, 10);
+        limiter.reserve(1, 10);
+    }
+
+    private static DatabaseClient outboxDatabase(String name) {
+        DatabaseClient db = DatabaseClient.create(ConnectionFactories.get("r2dbc:h2:mem:///" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1"));
+        Flux.concat(
+                db.sql("CREATE TABLE transaction (id INT PRIMARY KEY, account_id INT, amount DOUBLE, transact_status VARCHAR(32))").then(),
+                db.sql("CREATE TABLE transaction_outbox (id INT AUTO_INCREMENT PRIMARY KEY, transaction_id INT, created_at DATETIME(3))").then()
+        ).blockLast(Duration.ofSeconds(10));
+        return db;
+    }
+
+    private static void accepted(DatabaseClient db, int transactionId, int accountId, double amount,
+                                 TransactionState state, LocalDateTime createdAt) {
+        db.sql("INSERT INTO transaction (id, account_id, amount, transact_status) VALUES (:id, :account, :amount, :status)")
+                .bind("id", transactionId)
+                .bind("account", accountId)
+                .bind("amount", amount)
+                .bind("status", state.status())
+                .then()
+                .then(db.sql("INSERT INTO transaction_outbox (transaction_id, created_at) VALUES (:id, :createdAt)")
+                        .bind("id", transactionId)
+                        .bind("createdAt", createdAt)
+                        .then())
+                .block(Duration.ofSeconds(10));
+    }
+
+    private void hammer(BooleanSupplier op) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(pool.submit(() -> {
+                start.await();
+                while (op.getAsBoolean()) {
+                    // keep going until the operation reports it is done
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(1, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+    }
+
+    private static AccountVelocityLimiter limiter(Clock clock, double hourlyAmount, int hourlyCount,
+                                                  double dailyAmount, int dailyCount) {
+        return new AccountVelocityLimiter(null, clock, true, hourlyAmount, hourlyCount, dailyAmount, dailyCount);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
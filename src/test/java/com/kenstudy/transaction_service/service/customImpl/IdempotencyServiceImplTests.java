@@ -0,0 +1,222 @@
+package com.kenstudy.transaction_service.service.customImpl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kenstudy.transaction.TransactionResponseDTO;
+import com.kenstudy.transaction.TransferRequestDTO;
+import com.kenstudy.transaction_service.exception.IdempotencyConflictException;
+import com.kenstudy.transaction_service.model.IdempotencyRecord;
+import com.kenstudy.transaction_service.model.Transaction;
+import com.kenstudy.transaction_service.repository.IdempotencyRecordRepository;
+import com.kenstudy.transaction_service.repository.TransactionRepository;
+import com.kenstudy.transaction_service.service.IdempotencyService;
+import com.kenstudy.transaction_service.support.IntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyServiceImplTests extends IntegrationTest {
+    private static final Duration WAIT = Duration.ofSeconds(10);
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionalOperator txOperator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @Test
+    void keysPastTheirRetentionArePurged() {
+        LocalDateTime expired = LocalDateTime.now().minusDays(2).truncatedTo(ChronoUnit.MILLIS);
+        LocalDateTime recent = LocalDateTime.now().minusHours(1).truncatedTo(ChronoUnit.MILLIS);
+        idempotencyRepository.claim("purge-completed", "0".repeat(64), expired)
+                .then(idempotencyRepository.complete("purge-completed", expired, "{}", expired))
+                .then(idempotencyRepository.claim("purge-abandoned", "0".repeat(64), expired))
+                .then(idempotencyRepository.claim("purge-recent", "0".repeat(64), recent))
+                .then(idempotencyRepository.complete("purge-recent", recent, "{}", recent))
+                .block(WAIT);
+
+        // a batch size of one makes the purge loop until nothing expired is left
+        assertThat(newInstance().purgeExpired().block(WAIT)).isGreaterThanOrEqualTo(2L);
+
+        assertThat(idempotencyRepository.existsById("purge-completed").block(WAIT)).isFalse();
+        assertThat(idempotencyRepository.existsById("purge-abandoned").block(WAIT)).isFalse();
+        assertThat(idempotencyRepository.existsById("purge-recent").block(WAIT)).isTrue();
+    }
+
+    @Test
+    void aRepeatedRequestReplaysTheFirstResponse() throws Exception {
+        String body = transferJson(40_001, 40_002, 30.0, "idempotent");
+
+        JsonNode first = post("replay-1", body);
+        JsonNode second = post("replay-1", body);
+
+        assertThat(second.get("transactionId").asInt()).isEqualTo(first.get("transactionId").asInt());
+        IdempotencyRecord stored = idempotencyRepository.findById("replay-1").block(WAIT);
+        assertThat(stored.getStatus()).isEqualTo(IdempotencyRecord.COMPLETED);
+        assertThat(objectMapper.readTree(stored.getResponse()).get("transactionId").asInt())
+                .isEqualTo(first.get("transactionId").asInt());
+    }
+
+    @Test
+    void concurrentDuplicatesOnSeveralInstancesTransferOnce() {
+        TransferRequestDTO request = request(40_010);
+        // separate instances share only the database, like two pods
+        List<IdempotencyService> instances = List.of(idempotencyService, newInstance(), newInstance());
+
+        List<Object> outcomes = Flux.range(0, 12)
+                .flatMap(i -> instances.get(i % instances.size())
+                        .execute("concurrent-1", request, complete -> slowTransfer(request, complete))
+                        .<Object>map(response -> response.getTransactionId())
+                        .onErrorResume(IdempotencyConflictException.class, ex -> Mono.just(ex.getMessage())))
+                .collectList()
+                .block(WAIT);
+
+        assertThat(runs).hasValue(1);
+        Integer transactionId = outcomes.stream().filter(Integer.class::isInstance).map(Integer.class::cast)
+                .findFirst().orElseThrow();
+        assertThat(outcomes).allMatch(outcome -> transactionId.equals(outcome)
+                || outcome.toString().contains("still in progress"));
+        StepVerifier.create(newInstance().execute("concurrent-1", request, complete -> slowTransfer(request, complete)))
+                .assertNext(replayed -> assertThat(replayed.getTransactionId()).isEqualTo(transactionId))
+                .verifyComplete();
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void aStaleClaimIsReleasedSoTheClientCanRetry() throws Exception {
+        TransferRequestDTO request = request(40_020);
+        LocalDateTime longAgo = LocalDateTime.now().minusMinutes(10).withNano(0);
+        idempotencyRepository.claim("stale-1", hash(request), longAgo).block(WAIT);
+
+        StepVerifier.create(idempotencyService.execute("stale-1", request, complete -> transfer(request, complete)))
+                .expectErrorSatisfies(ex -> assertThat(ex).isInstanceOf(IdempotencyConflictException.class)
+                        .hasMessageContaining("interrupted"))
+                .verify(WAIT);
+        assertThat(idempotencyRepository.existsById("stale-1").block(WAIT)).isFalse();
+
+        StepVerifier.create(idempotencyService.execute("stale-1", request, complete -> transfer(request, complete)))
+                .expectNextCount(1)
+                .verifyComplete();
+        assertThat(runs).hasValue(1);
+        assertThat(idempotencyRepository.findById("stale-1").block(WAIT).getStatus()).isEqualTo(IdempotencyRecord.COMPLETED);
+    }
+
+    @Test
+    void aTransferWhoseClaimWasTakenOverRollsBack() throws Exception {
+        TransferRequestDTO request = request(40_030);
+        String hash = hash(request);
+
+        // the claim is released as stale and a retry claims the key while this transfer is still running
+        Mono<TransactionResponseDTO> overtaken = idempotencyService.execute("overtaken-1", request, complete ->
+                idempotencyRepository.deleteById("overtaken-1")
+                        .then(idempotencyRepository.claim("overtaken-1", hash, LocalDateTime.now().plusSeconds(5).withNano(0)))
+                        .then(transfer(request, complete)));
+
+        StepVerifier.create(overtaken)
+                .expectError(IdempotencyConflictException.class)
+                .verify(WAIT);
+        assertThat(transactionRepository.findAll()
+                .filter(transaction -> request.getAccountId().equals(transaction.getAccountId()))
+                .count()
+                .block(WAIT)).isZero();
+        assertThat(idempotencyRepository.findById("overtaken-1").block(WAIT).getStatus()).isEqualTo(IdempotencyRecord.IN_PROGRESS);
+    }
+
+    @Test
+    void aFailedTransferReleasesTheKey() {
+        TransferRequestDTO request = request(40_040);
+
+        StepVerifier.create(idempotencyService.execute("failed-1", request,
+                        complete -> Mono.error(new IllegalStateException("database unavailable"))))
+                .expectError(IllegalStateException.class)
+                .verify(WAIT);
+        assertThat(idempotencyRepository.existsById("failed-1").block(WAIT)).isFalse();
+
+        StepVerifier.create(idempotencyService.execute("failed-1", request, complete -> transfer(request, complete)))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    private JsonNode post(String key, String body) {
+        return webTestClient.post().uri("/v1/transaction/fund-transfer")
+                .header("Idempotency-Key", key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(JsonNode.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private Mono<TransactionResponseDTO> slowTransfer(TransferRequestDTO request, Function<TransactionResponseDTO, Mono<Void>> complete) {
+        return Mono.delay(Duration.ofMillis(200)).then(transfer(request, complete));
+    }
+
+    // writes a transaction row and stores the response in one transaction, as TransactionServiceImpl does
+    private Mono<TransactionResponseDTO> transfer(TransferRequestDTO request, Function<TransactionResponseDTO, Mono<Void>> complete) {
+        return Mono.defer(() -> {
+                    runs.incrementAndGet();
+                    return transactionRepository.save(new Transaction(null, request.getAccountId(), request.getRecipientId(),
+                            request.getDescription(), request.getAmount(), "TRANSFER", "TRANSACTION_CREATED", LocalDate.now()));
+                })
+                .map(saved -> {
+                    TransactionResponseDTO response = new TransactionResponseDTO();
+                    response.setTransactionId(saved.getId());
+                    response.setAccountId(saved.getAccountId());
+                    return response;
+                })
+                .flatMap(response -> complete.apply(response).thenReturn(response))
+                .as(txOperator::transactional);
+    }
+
+    private IdempotencyServiceImpl newInstance() {
+        return new IdempotencyServiceImpl(idempotencyRepository, objectMapper, 1000, Duration.ofMinutes(10), Duration.ofMinutes(1),
+                Duration.ofHours(24), Duration.ofMinutes(10), 1);
+    }
+
+    private String hash(TransferRequestDTO request) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request)));
+    }
+
+    private static TransferRequestDTO request(int accountId) {
+        TransferRequestDTO request = new TransferRequestDTO();
+        request.setAccountId(accountId);
+        request.setCustomerId(accountId);
+        request.setRecipientId(accountId + 1);
+        request.setAmount(30.0);
+        request.setDescription("idempotent");
+        return request;
+    }
+}
@@ -0,0 +1,77 @@
+package com.kenstudy.transaction_service.service.customImpl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kenstudy.transaction_service.model.Transaction;
+import com.kenstudy.transaction_service.model.TransactionSnapshot;
+import com.kenstudy.transaction_service.model.TransactionState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionCacheTests {
+    private static final LocalDate DAY = LocalDate.of(2025, 6, 1);
+    private static final Duration WAIT = Duration.ofSeconds(5);
+    private static final Function<Integer, Mono<Transaction>> NO_LOAD = id -> {
+        throw new AssertionError("transaction " + id + " should have been served from the cache");
+    };
+
+    private final TransactionCache cache = new TransactionCache(new ObjectMapper().findAndRegisterModules(),
+            new SimpleMeterRegistry(), 100, Duration.ofSeconds(2), Duration.ofMinutes(10));
+
+    @Test
+    void aStatusChangeDuringALoadDropsTheSnapshotTheLoadRead() {
+        Sinks.One<Transaction> load = Sinks.one();
+        CompletableFuture<TransactionSnapshot> inFlight = cache.get(1, id -> load.asMono()).toFuture();
+
+        cache.statusChanged(List.of(1), TransactionState.PENDING, DAY);
+        // the load had read the row before the change was committed
+        load.tryEmitValue(row(1, TransactionState.CREATED));
+        assertThat(inFlight.join().getTransaction().getTransactionStatus()).isEqualTo(TransactionState.CREATED.status());
+
+        AtomicInteger loads = new AtomicInteger();
+        TransactionSnapshot next = cache.get(1, id -> {
+            loads.incrementAndGet();
+            return Mono.just(row(1, TransactionState.PENDING));
+        }).block(WAIT);
+        assertThat(loads).hasValue(1);
+        assertThat(next.getTransaction().getTransactionStatus()).isEqualTo(TransactionState.PENDING.status());
+    }
+
+    @Test
+    void aStatusChangeRefreshesALoadedSnapshotAndItsEtag() {
+        cache.put(row(2, TransactionState.CREATED));
+        String before = cache.get(2, NO_LOAD).block(WAIT).getEtag();
+
+        cache.statusChanged(List.of(2), TransactionState.PENDING, DAY);
+
+        TransactionSnapshot after = cache.get(2, NO_LOAD).block(WAIT);
+        assertThat(after.getTransaction().getTransactionStatus()).isEqualTo(TransactionState.PENDING.status());
+        assertThat(after.getEtag()).isNotEqualTo(before).contains(TransactionState.PENDING.status());
+    }
+
+    @Test
+    void aStatusChangeForAnUncachedTransactionCachesNothing() {
+        cache.statusChanged(List.of(3), TransactionState.PENDING, DAY);
+
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(3, id -> {
+            loads.incrementAndGet();
+            return Mono.just(row(3, TransactionState.PENDING));
+        }).block(WAIT);
+        assertThat(loads).hasValue(1);
+    }
+
+    private static Transaction row(int id, TransactionState state) {
+        return new Transaction(id, 32_001, 32_002, "cache", 25.0, "TRANSFER", state.status(), DAY);
+    }
+}
@@ -0,0 +1,313 @@
+package com.kenstudy.transaction_service.service.customImpl;
+
+import com.kenstudy.payment.PaymentRequestDTO;
+import com.kenstudy.payment.PaymentResponseDTO;
+import com.kenstudy.transaction_service.config.DownstreamClientProperties;
+import com.kenstudy.transaction_service.config.client.TransactClient;
+import com.kenstudy.transaction_service.exception.DownstreamServerException;
+import com.kenstudy.transaction_service.exception.TransactionNotFoundException;
+import com.kenstudy.transaction_service.model.OutboxStatus;
+import com.kenstudy.transaction_service.model.Transaction;
+import com.kenstudy.transaction_service.model.TransactionOutbox;
+import com.kenstudy.transaction_service.model.TransactionState;
+import com.kenstudy.transaction_service.repository.TransactionOutboxRepository;
+import com.kenstudy.transaction_service.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///relay;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "spring.sql.init.mode=always",
+        "transaction.limits.enabled=false",
+        "transaction.outbox.poll-interval=1h",
+        "transaction.outbox.batch-size=10",
+        "transaction.outbox.concurrency=2",
+        "transaction.outbox.max-attempts=3",
+        "transaction.outbox.initial-backoff=100ms",
+        "transaction.outbox.max-backoff=200ms",
+        "transaction.outbox.claim-timeout=5m",
+        "transaction.outbox.outcome-window=50ms",
+        "transaction.outbox.purge-batch-size=1"
+})
+class TransactionOutboxRelayTests {
+    private static final Duration WAIT = Duration.ofSeconds(10);
+
+    @Autowired
+    private TransactionOutboxRelay relay;
+
+    @Autowired
+    private TransactionOutboxRepository outboxRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @MockitoBean
+    private TransactClient transactClient;
+
+    @MockitoSpyBean
+    private AccountVelocityLimiter velocityLimiter;
+
+    @BeforeEach
+    void emptyOutbox() {
+        outboxRepository.deleteAll().block(WAIT);
+    }
+
+    @Test
+    void deliversAClaimedRowAndCompletesTheTransaction() {
+        when(transactClient.makePaymentTransfer(any())).thenReturn(Mono.just(new PaymentResponseDTO()));
+        Transaction transaction = transaction();
+        TransactionOutbox entry = pending(transaction);
+
+        assertThat(relay.relayBatch().block(WAIT)).isEqualTo(1);
+
+        TransactionOutbox delivered = outboxRepository.findById(entry.getId()).block(WAIT);
+        assertThat(delivered.getStatus()).isEqualTo(OutboxStatus.DELIVERED.name());
+        assertThat(delivered.getAttempts()).isEqualTo(1);
+        assertThat(delivered.getClaimToken()).isNull();
+        assertThat(status(transaction)).isEqualTo(TransactionState.COMPLETED.status());
+        assertThat(relay.relayBatch().block(WAIT)).isZero();
+    }
+
+    @Test
+    void failedDeliveriesBackOffAndFailTheTransactionAfterMaxAttempts() {
+        when(transactClient.makePaymentTransfer(any()))
+                .thenReturn(Mono.error(new DownstreamServerException("Server error (500 INTERNAL_SERVER_ERROR): down")));
+        Transaction transaction = transaction();
+        TransactionOutbox entry = pending(transaction);
+
+        LocalDateTime beforeFirstAttempt = LocalDateTime.now();
+        assertThat(relay.relayBatch().block(WAIT)).isEqualTo(1);
+
+        TransactionOutbox retry = outboxRepository.findById(entry.getId()).block(WAIT);
+        assertThat(retry.getStatus()).isEqualTo(OutboxStatus.PENDING.name());
+        assertThat(retry.getAttempts()).isEqualTo(1);
+        assertThat(retry.getLastError()).contains("down");
+        assertThat(retry.getNextAttemptAt()).isAfter(beforeFirstAttempt.plus(Duration.ofMillis(99)));
+        assertThat(status(transaction)).isEqualTo(TransactionState.PENDING.status());
+        // not due until its backoff has passed
+        assertThat(relay.relayBatch().block(WAIT)).isZero();
+
+        await().atMost(WAIT).until(() -> relay.relayBatch().block(WAIT) == 1);
+        assertThat(outboxRepository.findById(entry.getId()).block(WAIT).getAttempts()).isEqualTo(2);
+        await().atMost(WAIT).until(() -> relay.relayBatch().block(WAIT) == 1);
+
+        TransactionOutbox failed = outboxRepository.findById(entry.getId()).block(WAIT);
+        assertThat(failed.getStatus()).isEqualTo(OutboxStatus.FAILED.name());
+        assertThat(failed.getAttempts()).isEqualTo(3);
+        assertThat(status(transaction)).isEqualTo(TransactionState.FAILED.status());
+    }
+
+    @Test
+    void claimsOfADeadRelayAreReleasedAndDelivered() {
+        when(transactClient.makePaymentTransfer(any())).thenReturn(Mono.just(new PaymentResponseDTO()));
+        Transaction transaction = transaction();
+        TransactionOutbox entry = pending(transaction);
+        entry.setStatus(OutboxStatus.IN_FLIGHT.name());
+        entry.setClaimToken("dead-relay");
+        entry.setClaimedAt(LocalDateTime.now().minusMinutes(10));
+        outboxRepository.save(entry).block(WAIT);
+
+        assertThat(relay.relayBatch().block(WAIT)).isEqualTo(1);
+
+        assertThat(outboxRepository.findById(entry.getId()).block(WAIT).getStatus()).isEqualTo(OutboxStatus.DELIVERED.name());
+        assertThat(status(transaction)).isEqualTo(TransactionState.COMPLETED.status());
+    }
+
+    @Test
+    void recentClaimsAreLeftToTheRelayHoldingThem() {
+        Transaction transaction = transaction();
+        TransactionOutbox entry = pending(transaction);
+        entry.setStatus(OutboxStatus.IN_FLIGHT.name());
+        entry.setClaimToken("live-relay");
+        entry.setClaimedAt(LocalDateTime.now().minusMinutes(1));
+        outboxRepository.save(entry).block(WAIT);
+
+        assertThat(relay.relayBatch().block(WAIT)).isZero();
+        assertThat(outboxRepository.findById(entry.getId()).block(WAIT).getClaimToken()).isEqualTo("live-relay");
+    }
+
+    @Test
+    void aLateOutcomeDoesNotOverwriteANewerClaim() {
+        Sinks.One<PaymentResponseDTO> payment = Sinks.one();
+        when(transactClient.makePaymentTransfer(any())).thenReturn(payment.asMono());
+        Transaction transaction = transaction();
+        TransactionOutbox entry = pending(transaction);
+
+        CompletableFuture<Long> pass = relay.relayBatch().toFuture();
+        await().atMost(WAIT).until(() -> OutboxStatus.IN_FLIGHT.name()
+                .equals(outboxRepository.findById(entry.getId()).block(WAIT).getStatus()));
+
+        // another relay released the claim as stale and took the row over while the payment call was running
+        TransactionOutbox reclaimed = outboxRepository.findById(entry.getId()).block(WAIT);
+        reclaimed.setClaimToken("newer-relay");
+        reclaimed.setClaimedAt(LocalDateTime.now());
+        outboxRepository.save(reclaimed).block(WAIT);
+
+        payment.tryEmitValue(new PaymentResponseDTO());
+        assertThat(pass.join()).isEqualTo(1);
+
+        TransactionOutbox untouched = outboxRepository.findById(entry.getId()).block(WAIT);
+        assertThat(untouched.getStatus()).isEqualTo(OutboxStatus.IN_FLIGHT.name());
+        assertThat(untouched.getClaimToken()).isEqualTo("newer-relay");
+        assertThat(untouched.getAttempts()).isZero();
+        assertThat(status(transaction)).isEqualTo(TransactionState.PENDING.status());
+    }
+
+    @Test
+    void outcomesAreRecordedAsDeliveriesFinishNotAfterTheWholeBatch() {
+        Transaction fast = transaction();
+        Transaction slow = transaction();
+        Sinks.One<PaymentResponseDTO> slowPayment = Sinks.one();
+        when(transactClient.makePaymentTransfer(any())).thenAnswer(invocation -> {
+            PaymentRequestDTO payDto = invocation.getArgument(0);
+            return slow.getId().equals(payDto.getTransactionId()) ? slowPayment.asMono() : Mono.just(new PaymentResponseDTO());
+        });
+        TransactionOutbox fastEntry = pending(fast);
+        TransactionOutbox slowEntry = pending(slow);
+
+        CompletableFuture<Long> pass = relay.relayBatch().toFuture();
+
+        // the fast payment is recorded within one outcome window while the slow one is still out
+        await().atMost(WAIT).until(() -> OutboxStatus.DELIVERED.name()
+                .equals(outboxRepository.findById(fastEntry.getId()).block(WAIT).getStatus()));
+        assertThat(status(fast)).isEqualTo(TransactionState.COMPLETED.status());
+        assertThat(outboxRepository.findById(slowEntry.getId()).block(WAIT).getStatus()).isEqualTo(OutboxStatus.IN_FLIGHT.name());
+        assertThat(pass).isNotDone();
+
+        slowPayment.tryEmitValue(new PaymentResponseDTO());
+        assertThat(pass.join()).isEqualTo(2);
+        assertThat(outboxRepository.findById(slowEntry.getId()).block(WAIT).getStatus()).isEqualTo(OutboxStatus.DELIVERED.name());
+        assertThat(status(slow)).isEqualTo(TransactionState.COMPLETED.status());
+    }
+
+    @Test
+    void recordOutcomeRequiresTheClaimToken() {
+        TransactionOutbox entry = pending(transaction());
+        entry.setStatus(OutboxStatus.IN_FLIGHT.name());
+        entry.setClaimToken("holder");
+        outboxRepository.save(entry).block(WAIT);
+
+        assertThat(outboxRepository.recordOutcome(entry.getId(), "someone-else", OutboxStatus.DELIVERED.name(), 1,
+                entry.getNextAttemptAt(), null).block(WAIT)).isZero();
+        assertThat(outboxRepository.recordOutcome(entry.getId(), "holder", OutboxStatus.DELIVERED.name(), 1,
+                entry.getNextAttemptAt(), null).block(WAIT)).isEqualTo(1);
+        assertThat(outboxRepository.findById(entry.getId()).block(WAIT).getClaimToken()).isNull();
+    }
+
+    @Test
+    void refusesAClaimTimeoutShorterThanTwoBatchDeliveries() {
+        DownstreamClientProperties clientProperties = new DownstreamClientProperties();
+        // 1s connect + 2s acquire + 3s response, 50 rows 8 at a time: one batch can take 42s
+        assertThatThrownBy(() -> new TransactionOutboxRelay(null, null, null, null, null, null, null, null, clientProperties,
+                Duration.ofMillis(200), 50, 8, 8, Duration.ofMillis(500), Duration.ofMinutes(1), Duration.ofMinutes(1),
+                10, Duration.ofMillis(100), Duration.ofDays(7), Duration.ofHours(1), 1000))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("claim-timeout");
+    }
+
+    @Test
+    void refusesARetentionTheVelocityRebuildCannotReadBackFrom() {
+        DownstreamClientProperties clientProperties = new DownstreamClientProperties();
+        assertThatThrownBy(() -> new TransactionOutboxRelay(null, null, null, null, null, null, null, null, clientProperties,
+                Duration.ofMillis(200), 50, 8, 8, Duration.ofMillis(500), Duration.ofMinutes(1), Duration.ofMinutes(5),
+                10, Duration.ofMillis(100), Duration.ofHours(12), Duration.ofHours(1), 1000))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("retention");
+    }
+
+    @Test
+    void aRejectedPaymentFailsAtOnce() {
+        when(transactClient.makePaymentTransfer(any()))
+                .thenReturn(Mono.error(new TransactionNotFoundException("Client error (400 BAD_REQUEST): insufficient funds")));
+        Transaction transaction = transaction();
+        TransactionOutbox entry = pending(transaction);
+
+        assertThat(relay.relayBatch().block(WAIT)).isEqualTo(1);
+
+        TransactionOutbox failed = outboxRepository.findById(entry.getId()).block(WAIT);
+        assertThat(failed.getStatus()).isEqualTo(OutboxStatus.FAILED.name());
+        assertThat(failed.getAttempts()).isEqualTo(1);
+        assertThat(failed.getLastError()).contains("insufficient funds");
+        assertThat(status(transaction)).isEqualTo(TransactionState.FAILED.status());
+    }
+
+    @Test
+    void anUnreadablePayloadFailsAtOnceAndReleasesTheVelocityReservation() {
+        Transaction transaction = transaction();
+        TransactionOutbox entry = pending(transaction);
+        entry.setPayload("{not json");
+        outboxRepository.save(entry).block(WAIT);
+
+        assertThat(relay.relayBatch().block(WAIT)).isEqualTo(1);
+
+        assertThat(outboxRepository.findById(entry.getId()).block(WAIT).getStatus()).isEqualTo(OutboxStatus.FAILED.name());
+        assertThat(status(transaction)).isEqualTo(TransactionState.FAILED.status());
+        // the account and amount come from the transaction row, as the payload cannot be read
+        verify(velocityLimiter).release(eq(transaction.getAccountId()), eq(transaction.getAmount()), any(Instant.class));
+    }
+
+    @Test
+    void purgesFinishedRowsPastTheRetentionOnly() {
+        LocalDateTime old = LocalDateTime.now().minusDays(8);
+        TransactionOutbox oldDelivered = finished(transaction(), OutboxStatus.DELIVERED, old);
+        TransactionOutbox oldFailed = finished(transaction(), OutboxStatus.FAILED, old);
+        TransactionOutbox oldPending = finished(transaction(), OutboxStatus.PENDING, old);
+        TransactionOutbox recentDelivered = finished(transaction(), OutboxStatus.DELIVERED, LocalDateTime.now().minusHours(1));
+
+        assertThat(relay.purgeFinished().block(WAIT)).isEqualTo(2);
+
+        assertThat(outboxRepository.existsById(oldDelivered.getId()).block(WAIT)).isFalse();
+        assertThat(outboxRepository.existsById(oldFailed.getId()).block(WAIT)).isFalse();
+        assertThat(outboxRepository.existsById(oldPending.getId()).block(WAIT)).isTrue();
+        assertThat(outboxRepository.existsById(recentDelivered.getId()).block(WAIT)).isTrue();
+    }
+
+    private Transaction transaction() {
+        Transaction transaction = new Transaction(null, 30_001, 30_002, "relay", 25.0, "TRANSFER",
+                TransactionState.CREATED.status(), LocalDate.now());
+        return transactionRepository.save(transaction).block(WAIT);
+    }
+
+    private TransactionOutbox pending(Transaction transaction) {
+        LocalDateTime now = LocalDateTime.now();
+        String payload = "{\"transactionId\":" + transaction.getId() + ",\"accountId\":" + transaction.getAccountId()
+                + ",\"customerId\":" + transaction.getAccountId() + ",\"recipientId\":" + transaction.getRecipientId()
+                + ",\"amount\":" + transaction.getAmount() + "}";
+        TransactionOutbox entry = new TransactionOutbox(null, transaction.getId(), payload, OutboxStatus.PENDING.name(),
+                0, now.minusSeconds(1), null, null, null, now);
+        return outboxRepository.save(entry).block(WAIT);
+    }
+
+    private TransactionOutbox finished(Transaction transaction, OutboxStatus status, LocalDateTime createdAt) {
+        TransactionOutbox entry = pending(transaction);
+        entry.setStatus(status.name());
+        entry.setCreatedAt(createdAt);
+        return outboxRepository.save(entry).block(WAIT);
+    }
+
+    private String status(Transaction transaction) {
+        return transactionRepository.findById(transaction.getId()).block(WAIT).getTransactionStatus();
+    }
+}
@@ -0,0 +1,133 @@
+package com.kenstudy.transaction_service.service.customImpl;
+
+import com.kenstudy.transaction_service.model.Transaction;
+import com.kenstudy.transaction_service.model.TransactionState;
+import com.kenstudy.transaction_service.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///state-machine;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "spring.sql.init.mode=always",
+        "transaction.limits.enabled=false",
+        "transaction.outbox.poll-interval=1h"
+})
+class TransactionStateMachineTests {
+    private static final Duration WAIT = Duration.ofSeconds(10);
+
+    @Autowired
+    private TransactionStateMachine stateMachine;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionCache transactionCache;
+
+    @Autowired
+    private RecentWrites recentWrites;
+
+    @Autowired
+    private TransactionalOperator txOperator;
+
+    @Test
+    void anOutOfOrderTransitionIsRejectedAndReported() {
+        Transaction created = transaction(TransactionState.CREATED);
+        transactionCache.put(created);
+
+        // a completion for a row the relay never moved to PENDING
+        StepVerifier.create(stateMachine.transition(List.of(created.getId()), TransactionState.PENDING, TransactionState.COMPLETED))
+                .assertNext(result -> {
+                    assertThat(result.applied()).isEmpty();
+                    assertThat(result.rejected()).containsExactly(created.getId());
+                })
+                .verifyComplete();
+
+        assertThat(status(created)).isEqualTo(TransactionState.CREATED.status());
+        assertThat(transactionCache.get(created.getId(), transactionRepository::findById).block(WAIT)
+                .getTransaction().getTransactionStatus()).isEqualTo(TransactionState.CREATED.status());
+    }
+
+    @Test
+    void rowsAlreadyInTheTargetStateCountAsApplied() {
+        Transaction created = transaction(TransactionState.CREATED);
+        Transaction retried = transaction(TransactionState.PENDING);
+        Transaction completed = transaction(TransactionState.COMPLETED);
+
+        StepVerifier.create(stateMachine.transition(List.of(created.getId(), retried.getId(), completed.getId()),
+                        TransactionState.CREATED, TransactionState.PENDING))
+                .assertNext(result -> {
+                    assertThat(result.applied()).containsExactlyInAnyOrder(created.getId(), retried.getId());
+                    assertThat(result.rejected()).containsExactly(completed.getId());
+                })
+                .verifyComplete();
+
+        assertThat(status(created)).isEqualTo(TransactionState.PENDING.status());
+        assertThat(status(retried)).isEqualTo(TransactionState.PENDING.status());
+        assertThat(status(completed)).isEqualTo(TransactionState.COMPLETED.status());
+    }
+
+    @Test
+    void aFullyAppliedTransitionUpdatesTheCachedCopy() {
+        Transaction pending = transaction(TransactionState.PENDING);
+        transactionCache.put(pending);
+
+        StepVerifier.create(stateMachine.transition(List.of(pending.getId()), TransactionState.PENDING, TransactionState.FAILED)
+                        .doOnNext(stateMachine::afterCommit))
+                .assertNext(result -> assertThat(result.applied()).containsExactly(pending.getId()))
+                .verifyComplete();
+
+        assertThat(transactionCache.get(pending.getId(), id -> {
+            throw new AssertionError("the cached copy should have been updated in place");
+        }).block(WAIT).getTransaction().getTransactionStatus()).isEqualTo(TransactionState.FAILED.status());
+        assertThat(recentWrites.isRecentTransaction(pending.getId())).isTrue();
+    }
+
+    @Test
+    void aRolledBackTransitionLeavesTheCacheAlone() {
+        Transaction pending = transaction(TransactionState.PENDING);
+        transactionCache.put(pending);
+
+        StepVerifier.create(stateMachine.transition(List.of(pending.getId()), TransactionState.PENDING, TransactionState.COMPLETED)
+                        .then(Mono.error(new IllegalStateException("rolled back")))
+                        .as(txOperator::transactional))
+                .expectError(IllegalStateException.class)
+                .verify(WAIT);
+
+        assertThat(status(pending)).isEqualTo(TransactionState.PENDING.status());
+        assertThat(transactionCache.get(pending.getId(), transactionRepository::findById).block(WAIT)
+                .getTransaction().getTransactionStatus()).isEqualTo(TransactionState.PENDING.status());
+        assertThat(recentWrites.isRecentTransaction(pending.getId())).isFalse();
+    }
+
+    @Test
+    void aTransitionTheLifecycleDoesNotAllowIsRefused() {
+        Transaction completed = transaction(TransactionState.COMPLETED);
+
+        StepVerifier.create(stateMachine.transition(List.of(completed.getId()), TransactionState.COMPLETED, TransactionState.PENDING))
+                .expectError(IllegalStateException.class)
+                .verify(WAIT);
+        assertThat(status(completed)).isEqualTo(TransactionState.COMPLETED.status());
+    }
+
+    private Transaction transaction(TransactionState state) {
+        return transactionRepository.save(new Transaction(null, 31_001, 31_002, "state machine", 25.0, "TRANSFER",
+                state.status(), LocalDate.now())).block(WAIT);
+    }
+
+    private String status(Transaction transaction) {
+        return transactionRepository.findById(transaction.getId()).block(WAIT).getTransactionStatus();
+    }
+}
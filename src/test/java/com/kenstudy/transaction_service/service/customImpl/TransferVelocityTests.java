@@ -0,0 +1,80 @@
+package com.kenstudy.transaction_service.service.customImpl;
+
+import com.kenstudy.transaction.TransferRequestDTO;
+import com.kenstudy.transaction_service.service.TransactionService;
+import com.kenstudy.transaction_service.support.IntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Velocity limits through the service: one transfer per account and hour. The sequencer is off because
+ * it lets a running transfer finish when its caller cancels; without it the cancel reaches the transfer.
+ */
+class TransferVelocityTests extends IntegrationTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @DynamicPropertySource
+    static void limits(DynamicPropertyRegistry registry) {
+        registry.add("transaction.limits.enabled", () -> "true");
+        registry.add("transaction.limits.hourly-count", () -> "1");
+        registry.add("transaction.sequencer.enabled", () -> "false");
+    }
+
+    @Test
+    void aBreachedLimitIsRejectedWith422() {
+        transfer(60_001).expectStatus().isCreated();
+
+        transfer(60_001).expectStatus().isEqualTo(422)
+                .expectBody().jsonPath("$.message").value(message ->
+                        assertThat(message.toString()).contains("hourly transfer count"));
+    }
+
+    @Test
+    void aCancelledTransferGivesItsReservationBack() throws Exception {
+        CountDownLatch persisting = new CountDownLatch(1);
+        // the client goes away while the transfer's database transaction is still open
+        Disposable cancelled = transactionService.transferFund(request(60_011), response -> {
+            persisting.countDown();
+            return Mono.never();
+        }).subscribe();
+        assertThat(persisting.await(10, TimeUnit.SECONDS)).isTrue();
+        cancelled.dispose();
+
+        transfer(60_011).expectStatus().isCreated();
+    }
+
+    private WebTestClient.ResponseSpec transfer(int accountId) {
+        return webTestClient.mutate().responseTimeout(Duration.ofSeconds(10)).build()
+                .post().uri("/v1/transaction/fund-transfer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(transferJson(accountId, accountId + 1, 25.0, "velocity"))
+                .exchange();
+    }
+
+    private static TransferRequestDTO request(int accountId) {
+        TransferRequestDTO request = new TransferRequestDTO();
+        request.setAccountId(accountId);
+        request.setCustomerId(accountId);
+        request.setRecipientId(accountId + 1);
+        request.setAmount(25.0);
+        request.setDescription("velocity");
+        return request;
+    }
+}
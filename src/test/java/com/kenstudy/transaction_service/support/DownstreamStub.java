@@ -0,0 +1,111 @@
+package com.kenstudy.transaction_service.support;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Local stand-in for the account (4001) and payment (4003) services with a configurable latency
+ * (base plus uniform jitter) and error rate. Every account id belongs to customer id == account id.
+ */
+public final class DownstreamStub implements AutoCloseable {
+    private static final Pattern IDS = Pattern.compile("\\d+");
+
+    // latency and error rate can be changed while the stub runs, to simulate an outage or a slowdown
+    private volatile Duration latency;
+    private final Duration jitter;
+    private volatile double errorRate;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final DisposableServer server;
+
+    private DownstreamStub(Duration latency, Duration jitter, double errorRate, boolean account) {
+        this.latency = latency;
+        this.jitter = jitter;
+        this.errorRate = errorRate;
+        this.server = HttpServer.create()
+                .port(0)
+                .route(routes -> {
+                    if (account) {
+                        routes.get("/v1/account/customer-acct-details/{accountId}", (req, res) ->
+                                respond(res, customerJson(req.param("accountId"))));
+                        routes.post("/v1/account/customer-acct-details/bulk", (req, res) ->
+                                res.header("Content-Type", "application/json")
+                                        .sendString(req.receive().aggregate().asString()
+                                                .flatMap(body -> delayed(bulkJson(body)))));
+                    } else {
+                        routes.post("/v1/payment/make-transfer", (req, res) ->
+                                req.receive().then(Mono.defer(() -> Mono.from(respond(res, "{}")))));
+                    }
+                })
+                .bindNow();
+    }
+
+    public static DownstreamStub account(Duration latency, Duration jitter, double errorRate) {
+        return new DownstreamStub(latency, jitter, errorRate, true);
+    }
+
+    public static DownstreamStub payment(Duration latency, Duration jitter, double errorRate) {
+        return new DownstreamStub(latency, jitter, errorRate, false);
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.port();
+    }
+
+    public void latency(Duration latency) {
+        this.latency = latency;
+    }
+
+    public void errorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public long errors() {
+        return errors.get();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+
+    private Publisher<Void> respond(HttpServerResponse res, String body) {
+        requests.incrementAndGet();
+        if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+            errors.incrementAndGet();
+            return res.status(500)
+                    .header("Content-Type", "application/json")
+                    .sendString(delayed("{\"status\":500,\"error\":\"Internal Server Error\",\"message\":\"stub failure\",\"path\":\"/\"}"));
+        }
+        return res.header("Content-Type", "application/json").sendString(delayed(body));
+    }
+
+    private Mono<String> delayed(String body) {
+        long jitterNanos = jitter.isZero() ? 0 : ThreadLocalRandom.current().nextLong(jitter.toNanos());
+        return Mono.delay(latency.plusNanos(jitterNanos)).thenReturn(body);
+    }
+
+    private String bulkJson(String body) {
+        requests.incrementAndGet();
+        Matcher ids = IDS.matcher(body);
+        return ids.results().map(m -> customerJson(m.group())).collect(Collectors.joining(",", "[", "]"));
+    }
+
+    private static String customerJson(String accountId) {
+        return "{\"id\":" + accountId + ",\"accountId\":" + accountId + "}";
+    }
+}
@@ -0,0 +1,44 @@
+package com.kenstudy.transaction_service.support;
+
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.Duration;
+
+/**
+ * Base for tests that drive the running service over HTTP: H2 in MySQL mode instead of MySQL and
+ * {@link DownstreamStub}s for the account and payment services. Subclasses that add no beans of their
+ * own share one application context. The outbox relay does not poll on its own; admission control and
+ * velocity limits are off unless a test turns them on.
+ * <p>
+ * The stub maps every account id to customer id == account id, so a valid transfer uses the sender's
+ * account id as its customerId. Tests share one database: use account ids no other test uses.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///integration;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "spring.sql.init.mode=always",
+        "transaction.outbox.poll-interval=1h",
+        "transaction.limits.enabled=false",
+        "transaction.admission.transfer.enabled=false",
+        "transaction.admission.read.enabled=false"
+})
+@AutoConfigureWebTestClient
+public abstract class IntegrationTest {
+    protected static final DownstreamStub ACCOUNT = DownstreamStub.account(Duration.ZERO, Duration.ZERO, 0);
+    protected static final DownstreamStub PAYMENT = DownstreamStub.payment(Duration.ZERO, Duration.ZERO, 0);
+
+    @DynamicPropertySource
+    static void downstreams(DynamicPropertyRegistry registry) {
+        registry.add("transaction.client.account.base-url", ACCOUNT::baseUrl);
+        registry.add("transaction.client.payment.base-url", PAYMENT::baseUrl);
+    }
+
+    protected static String transferJson(int accountId, int recipientId, double amount, String description) {
+        return "{\"accountId\":" + accountId + ",\"customerId\":" + accountId + ",\"recipientId\":" + recipientId
+                + ",\"amount\":" + amount + ",\"description\":\"" + description + "\"}";
+    }
+}